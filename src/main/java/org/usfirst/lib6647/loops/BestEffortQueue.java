@@ -0,0 +1,107 @@
+package org.usfirst.lib6647.loops;
+
+import java.util.function.IntConsumer;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops} only
+ * while their {@link ILooper} has slack left in the current tick. Whatever
+ * doesn't fit is deferred to the next tick, which picks up right where this
+ * one left off, so that every {@link Loop} gets its turn eventually.
+ * 
+ * <p>
+ * Never allocates, and only meant to be run from a single thread.
+ */
+public class BestEffortQueue {
+	/** Index of the next {@link Loop} to run. */
+	private int cursor = 0;
+	/**
+	 * Total {@link Loop} runs, deferred {@link Loop} runs, and ticks where at
+	 * least one {@link Loop} was deferred.
+	 */
+	private volatile long runs = 0, deferrals = 0, deferredTicks = 0;
+
+	/**
+	 * Runs as many of the given amount of {@link Loop Loops} as the
+	 * {@link ILooper}'s slack allows, each one at most once, starting from the
+	 * first one deferred last tick.
+	 * 
+	 * @param count
+	 * @param task   (runs the {@link Loop} at the given index)
+	 * @param looper
+	 * @return ran
+	 */
+	public int run(int count, IntConsumer task, ILooper looper) {
+		if (count == 0)
+			return 0;
+		if (cursor >= count)
+			cursor = 0;
+
+		int ran = 0;
+		if (!looper.isShedding())
+			while (ran < count && looper.hasSlack()) {
+				task.accept(cursor);
+
+				cursor = cursor + 1 < count ? cursor + 1 : 0;
+				ran++;
+			}
+
+		runs += ran;
+		if (ran < count) {
+			deferrals += count - ran;
+			deferredTicks++;
+		}
+
+		return ran;
+	}
+
+	/**
+	 * Gets the total amount of {@link Loop} runs.
+	 * 
+	 * @return runs
+	 */
+	public long getRuns() {
+		return runs;
+	}
+
+	/**
+	 * Gets the total amount of {@link Loop} runs deferred to a later tick.
+	 * 
+	 * @return deferrals
+	 */
+	public long getDeferrals() {
+		return deferrals;
+	}
+
+	/**
+	 * Gets the amount of ticks where at least one {@link Loop} was deferred.
+	 * 
+	 * @return deferredTicks
+	 */
+	public long getDeferredTicks() {
+		return deferredTicks;
+	}
+
+	/**
+	 * Gets the fraction (from 0 to 1) of {@link Loop} runs that were deferred.
+	 * 
+	 * @return deferralRatio
+	 */
+	public double getDeferralRatio() {
+		long total = runs + deferrals;
+		return total > 0 ? (double) deferrals / total : 0;
+	}
+
+	/**
+	 * Output run and deferral counts to SmartDashboard, with the given key as
+	 * prefix.
+	 * 
+	 * @param key
+	 */
+	public void outputToSmartDashboard(String key) {
+		SmartDashboard.putNumber(key + "_runs", runs);
+		SmartDashboard.putNumber(key + "_deferred", deferrals);
+		SmartDashboard.putNumber(key + "_deferred_ticks", deferredTicks);
+	}
+}
@@ -12,4 +12,34 @@ public interface ILooper {
 	 * @param loops
 	 */
 	void register(Loop... loops);
+
+	/**
+	 * Whether {@link LoopPriority#LOW LOW} priority {@link Loop Loops} should be
+	 * dropped during the current tick. Meant to be checked by {@link Loop Loops}
+	 * that run other {@link Loop Loops} themselves.
+	 * 
+	 * @return shedding
+	 */
+	default boolean isShedding() {
+		return false;
+	}
+
+	/**
+	 * Gets the time left until the end of the current tick's period, in seconds.
+	 * 
+	 * @return remainingTime
+	 */
+	default double getRemainingTime() {
+		return Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Whether there's enough time left in the current tick to run
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops}.
+	 * 
+	 * @return slack
+	 */
+	default boolean hasSlack() {
+		return true;
+	}
 }
\ No newline at end of file
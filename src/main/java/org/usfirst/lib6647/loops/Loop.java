@@ -16,6 +16,18 @@ public interface Loop {
 	 */
 	public void onFirstStart(double timestamp);
 
+	/**
+	 * Heavy initialization code to run before each start of the {@link Loop},
+	 * e.g. generating trajectories or allocating buffers. Usually run by a
+	 * background thread while the robot is disabled (see
+	 * {@link Looper#prepare()}), so it must never drive an output. Falls back to
+	 * running right before {@link #onStart(double)}.
+	 * 
+	 * @param timestamp
+	 */
+	public default void onPrepare(double timestamp) {
+	}
+
 	/**
 	 * Initialization code to run at each start of the {@link Loop}.
 	 * 
@@ -50,4 +62,73 @@ public interface Loop {
 	 * @return type
 	 */
 	public LoopType getType();
+
+	/**
+	 * Return priority of {@link Loop}. LOW priority {@link Loop Loops} may be
+	 * dropped for a tick after an overrun, see {@link OverrunPolicy#SHED}.
+	 * 
+	 * @return priority
+	 */
+	public default LoopPriority getPriority() {
+		return LoopPriority.NORMAL;
+	}
+
+	/**
+	 * Whether this {@link Loop} can run at the same time as every other
+	 * {@link Loop} in its {@link Looper} (i.e. it shares no state with them). If
+	 * the {@link Looper} has worker threads, parallel-safe {@link Loop Loops} are
+	 * run on them instead of one after another.
+	 * 
+	 * @return parallelSafe
+	 */
+	public default boolean isParallelSafe() {
+		return false;
+	}
+
+	/**
+	 * Return name of {@link Loop}, used by other {@link Loop Loops} to declare
+	 * they run after it (see {@link #getRunsAfter()}), and to label its timings.
+	 * Defaults to its class' simple name, or its binary name without the package
+	 * for anonymous classes (e.g. "Drive$1"). Must be overridden by any
+	 * {@link Loop} that others run after, if its class is used by more than one
+	 * {@link Loop} of the same {@link LoopType}.
+	 * 
+	 * @return name
+	 */
+	public default String getName() {
+		String name = getClass().getName();
+		return getClass().isAnonymousClass() ? name.substring(name.lastIndexOf('.') + 1)
+				: getClass().getSimpleName();
+	}
+
+	/**
+	 * Return names of the values this {@link Loop} produces (e.g. "pose"). Every
+	 * {@link Loop} of the same {@link LoopType} consuming any of them runs after
+	 * this one.
+	 * 
+	 * @return produces
+	 */
+	public default String[] getProduces() {
+		return new String[0];
+	}
+
+	/**
+	 * Return names of the values this {@link Loop} consumes, which must be
+	 * produced before it runs (see {@link #getProduces()}).
+	 * 
+	 * @return consumes
+	 */
+	public default String[] getConsumes() {
+		return new String[0];
+	}
+
+	/**
+	 * Return names of the {@link Loop Loops} of the same {@link LoopType} that
+	 * must run before this one (see {@link #getName()}).
+	 * 
+	 * @return runsAfter
+	 */
+	public default String[] getRunsAfter() {
+		return new String[0];
+	}
 }
\ No newline at end of file
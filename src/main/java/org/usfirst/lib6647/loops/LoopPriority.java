@@ -0,0 +1,12 @@
+package org.usfirst.lib6647.loops;
+
+/**
+ * Enum holding possible {@link Loop} priorities. NORMAL {@link Loop Loops}
+ * always run; LOW {@link Loop Loops} may be dropped for a tick by a
+ * {@link Looper} whose {@link OverrunPolicy} is SHED; BEST_EFFORT
+ * {@link Loop Loops} (e.g. telemetry) run after every other {@link Loop}, and
+ * only while there's slack left in the tick (see {@link BestEffortQueue}).
+ */
+public enum LoopPriority {
+	NORMAL, LOW, BEST_EFFORT
+}
@@ -0,0 +1,22 @@
+package org.usfirst.lib6647.loops;
+
+/**
+ * {@link RuntimeException} for errors thrown while registering {@link Loop
+ * Loops}, such as dependency cycles between them. Unchecked, since there's
+ * nothing to recover from at runtime: the {@link Loop Loops} themselves must be
+ * fixed.
+ */
+public class LoopRegisterException extends RuntimeException {
+	/** Serial version UID, required by compiler. */
+	private static final long serialVersionUID = -3127562815486203441L;
+
+	/**
+	 * {@link RuntimeException} for errors thrown while registering {@link Loop
+	 * Loops}.
+	 * 
+	 * @param message
+	 */
+	public LoopRegisterException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,411 @@
+package org.usfirst.lib6647.loops;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.function.DoubleSupplier;
+
+import org.usfirst.lib6647.util.Clock;
+
+import edu.wpi.first.hal.NotifierJNI;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs any number of {@link Looper Loopers} from a single thread, which only
+ * wakes up once per base tick. Each {@link Looper} runs at its own period,
+ * which must be a multiple of the base period, with an optional phase offset
+ * (in base ticks) so that slower {@link Looper Loopers} don't all land on the
+ * same tick.
+ * 
+ * <p>
+ * {@link Looper Loopers} are also gated by {@link RobotMode}: calling
+ * {@link #setMode(RobotMode)} starts every {@link Looper} declared for that
+ * mode, and stops every other one. How long each switch took is measured, and
+ * the {@link Looper Loopers} for upcoming modes can be {@link Looper#prepare()
+ * prepared} in the background beforehand, through
+ * {@link #prepareInBackground(RobotMode...)}.
+ * 
+ * <p>
+ * Base ticks can also be {@link #setPhaseLock(DoubleSupplier, double, double)
+ * phase-locked} to another periodic thread (e.g. the TimedRobot's main loop),
+ * so that they always land at a fixed offset from it.
+ * 
+ * <p>
+ * With a virtual {@link Clock}, the {@link LoopScheduler}'s thread is never
+ * started, and each base tick must be run through {@link #step()} instead.
+ */
+public class LoopScheduler {
+	/** Base period of the {@link LoopScheduler}, in seconds. */
+	private final double basePeriod;
+	/** Name of the {@link LoopScheduler}'s thread. */
+	private final String name;
+
+	/** Handle for the HAL notifier used to wait for each base tick. */
+	private final int notifier = NotifierJNI.initializeNotifier();
+	/** Thread running every {@link Looper}. */
+	private Thread thread = null;
+	/** Optional {@link ThreadSettings} for the {@link #thread}. */
+	private volatile ThreadSettings threadSettings = null;
+
+	/**
+	 * Array holding every scheduled {@link Looper}. Never modified, only replaced
+	 * by a new array.
+	 */
+	private volatile Entry[] entries = new Entry[0];
+	/** Current {@link RobotMode}, null until the first {@link #setMode(RobotMode)}. */
+	private RobotMode mode = null;
+
+	/** Background thread preparing {@link Looper Loopers}, if any. */
+	private Thread preparer = null;
+	/** Duration of the last switch into each {@link RobotMode}, in seconds. */
+	private final double[] transitionTimes = new double[RobotMode.values().length];
+
+	/**
+	 * Next expiration time of the thread to phase-lock to, if any, the offset (in
+	 * seconds) to keep from it, and the last phase error measured.
+	 */
+	private volatile DoubleSupplier phaseReference = null;
+	private volatile double phaseOffset = 0, phaseError = 0;
+
+	/** Absolute time (in seconds) of the next base tick, and count of ticks. */
+	private double expirationTime = 0;
+	private long tickCount = 0;
+	/** Deadline of the current base tick, in {@link Clock} nanoseconds. */
+	private volatile long tickDeadline = Long.MAX_VALUE;
+
+	/**
+	 * A scheduled {@link Looper}, with its divisor (period in base ticks), phase
+	 * offset, and the {@link RobotMode RobotModes} it runs in.
+	 */
+	private static final class Entry {
+		private final Looper looper;
+		private final int divisor, phase;
+		private final EnumSet<RobotMode> modes;
+
+		private Entry(Looper looper, int divisor, int phase, EnumSet<RobotMode> modes) {
+			this.looper = looper;
+			this.divisor = divisor;
+			this.phase = phase;
+			this.modes = modes;
+		}
+	}
+
+	/**
+	 * Constructor for {@link LoopScheduler}.
+	 * 
+	 * @param basePeriod
+	 * @param name
+	 */
+	public LoopScheduler(double basePeriod, String name) {
+		this.basePeriod = basePeriod;
+		this.name = name;
+
+		NotifierJNI.setNotifierName(notifier, name);
+	}
+
+	/**
+	 * Adds a {@link Looper} to the {@link LoopScheduler}, which will run it (at
+	 * its own period) while in any of the given {@link RobotMode RobotModes}. The
+	 * {@link Looper} must not have been started on its own before.
+	 * 
+	 * @param looper
+	 * @param phase  (in base ticks)
+	 * @param modes
+	 * @throws IllegalArgumentException if the {@link Looper}'s period is not a
+	 *                                  multiple of the base period.
+	 */
+	public synchronized void add(Looper looper, int phase, RobotMode... modes) {
+		int divisor = (int) Math.round(looper.getPeriod() / basePeriod);
+
+		if (divisor < 1 || Math.abs(divisor * basePeriod - looper.getPeriod()) > 1e-9)
+			throw new IllegalArgumentException(
+					String.format("[!] PERIOD OF LOOPER '%1$s' (%2$fs) IS NOT A MULTIPLE OF THE BASE PERIOD (%3$fs)",
+							looper.getName(), looper.getPeriod(), basePeriod));
+
+		looper.setScheduled(this);
+
+		EnumSet<RobotMode> modeSet = EnumSet.noneOf(RobotMode.class);
+		modeSet.addAll(Arrays.asList(modes));
+
+		Entry[] updated = Arrays.copyOf(entries, entries.length + 1);
+		updated[updated.length - 1] = new Entry(looper, divisor, Math.floorMod(phase, divisor), modeSet);
+		entries = updated;
+	}
+
+	/**
+	 * Switches to the given {@link RobotMode}, stopping every {@link Looper} not
+	 * declared for it, then starting every {@link Looper} that is. Also starts the
+	 * {@link LoopScheduler}'s thread, if it hasn't been already.
+	 * 
+	 * @param mode
+	 */
+	public synchronized void setMode(RobotMode mode) {
+		long start = Clock.getInstance().getNanos();
+		this.mode = mode;
+
+		for (Entry entry : entries)
+			if (!entry.modes.contains(mode))
+				entry.looper.stop();
+
+		for (Entry entry : entries)
+			if (entry.modes.contains(mode))
+				entry.looper.start();
+
+		if (thread == null && !Clock.getInstance().isVirtual()) {
+			thread = new Thread(this::run, name);
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		transitionTimes[mode.ordinal()] = (Clock.getInstance().getNanos() - start) * 1e-9;
+		System.out.println(String.format("Switched to %1$s in %2$.3fms", mode,
+				transitionTimes[mode.ordinal()] * 1e3));
+	}
+
+	/**
+	 * {@link Looper#prepare() Prepares} every {@link Looper} declared for any of
+	 * the given {@link RobotMode RobotModes} on a background thread, so that
+	 * switching into them later only has to run each {@link Loop}'s
+	 * {@link Loop#onStart(double)}. Meant to be called while disabled.
+	 * {@link Looper Loopers} already running are left as-is, and nothing is done
+	 * if a previous call is still preparing. With a virtual {@link Clock}, they
+	 * are prepared right away instead.
+	 * 
+	 * @param modes
+	 */
+	public synchronized void prepareInBackground(RobotMode... modes) {
+		if (preparer != null && preparer.isAlive())
+			return;
+
+		EnumSet<RobotMode> modeSet = EnumSet.noneOf(RobotMode.class);
+		modeSet.addAll(Arrays.asList(modes));
+
+		Entry[] snapshot = entries;
+		Runnable prepare = () -> {
+			long start = Clock.getInstance().getNanos();
+
+			for (Entry entry : snapshot)
+				if (!Collections.disjoint(entry.modes, modeSet))
+					entry.looper.prepare();
+
+			System.out.println(String.format("Prepared loops for %1$s in %2$.3fms", modeSet,
+					(Clock.getInstance().getNanos() - start) * 1e-6));
+		};
+
+		// Keep simulations deterministic.
+		if (Clock.getInstance().isVirtual()) {
+			prepare.run();
+			return;
+		}
+
+		preparer = new Thread(prepare, name + "-prepare");
+		preparer.setDaemon(true);
+		preparer.start();
+	}
+
+	/**
+	 * Gets how long the last switch into the given {@link RobotMode} took, in
+	 * seconds, or 0 if it hasn't happened yet.
+	 * 
+	 * @param mode
+	 * @return transitionTime
+	 */
+	public synchronized double getTransitionTime(RobotMode mode) {
+		return transitionTimes[mode.ordinal()];
+	}
+
+	/**
+	 * Output how long the last switch into each {@link RobotMode} took, and the
+	 * phase-lock error, to SmartDashboard.
+	 */
+	public synchronized void outputToSmartDashboard() {
+		SmartDashboard.putNumber(name + "_phase_error", phaseError);
+
+		for (RobotMode robotMode : RobotMode.values())
+			SmartDashboard.putNumber(name + "_transition_" + robotMode.name().toLowerCase(),
+					transitionTimes[robotMode.ordinal()]);
+	}
+
+	/**
+	 * Gets the current {@link RobotMode}, or null if none has been set yet.
+	 * 
+	 * @return mode
+	 */
+	public synchronized RobotMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Main loop of the {@link LoopScheduler}'s thread. Waits for each base tick,
+	 * then runs every {@link Looper} due on it.
+	 */
+	private void run() {
+		if (threadSettings != null)
+			threadSettings.apply(name);
+
+		expirationTime = Clock.getInstance().getTimestamp() + basePeriod;
+		updateAlarm();
+
+		while (true) {
+			long curTime = NotifierJNI.waitForNotifierAlarm(notifier);
+			if (curTime == 0)
+				break;
+
+			double scheduled = expirationTime;
+
+			expirationTime += basePeriod;
+			alignPhase();
+			updateAlarm();
+
+			runTick(scheduled);
+		}
+	}
+
+	/**
+	 * Runs a single base tick, as if fired on time. Meant for stepping the
+	 * {@link LoopScheduler} with a virtual {@link Clock}, after moving it forward
+	 * by {@link #getBasePeriod()}.
+	 */
+	public void step() {
+		runTick(Clock.getInstance().getTimestamp());
+	}
+
+	/**
+	 * Runs every {@link Looper} due on the next base tick.
+	 * 
+	 * @param scheduled (timestamp the tick was meant to fire at)
+	 */
+	private void runTick(double scheduled) {
+		long tick = tickCount++;
+
+		Clock clock = Clock.getInstance();
+		tickDeadline = clock.getNanos() + (long) ((scheduled + basePeriod - clock.getTimestamp()) * 1e9);
+
+		Entry[] snapshot = entries;
+		for (int i = 0; i < snapshot.length; i++)
+			if (tick % snapshot[i].divisor == snapshot[i].phase)
+				snapshot[i].looper.tick(scheduled);
+	}
+
+	/**
+	 * Nudges the next base tick towards the phase-lock offset from the reference
+	 * expiration time, by at most a tenth of the base period per tick so that no
+	 * tick is ever moved into the past.
+	 */
+	private void alignPhase() {
+		DoubleSupplier reference = phaseReference;
+		if (reference == null)
+			return;
+
+		double referenceTime = reference.getAsDouble();
+		if (referenceTime <= 0)
+			return;
+
+		// The reference period is a multiple of the base period, so its phase is
+		// the same whether it has already been moved on to its next expiration.
+		phaseError = Math.IEEEremainder(expirationTime - referenceTime - phaseOffset, basePeriod);
+
+		double maxStep = basePeriod * 0.1;
+		expirationTime -= Math.max(-maxStep, Math.min(maxStep, phaseError));
+	}
+
+	/**
+	 * Gets the time left until the end of the current base tick, in seconds,
+	 * shared by every {@link Looper} run on it. Only meaningful when called from
+	 * within a base tick.
+	 * 
+	 * @return remainingTime
+	 */
+	double getRemainingTime() {
+		return (tickDeadline - Clock.getInstance().getNanos()) * 1e-9;
+	}
+
+	/**
+	 * Update the alarm hardware to reflect the next base tick.
+	 */
+	private void updateAlarm() {
+		NotifierJNI.updateNotifierAlarm(notifier, (long) (expirationTime * 1e6));
+	}
+
+	/**
+	 * Stops the {@link LoopScheduler}'s thread, along with every {@link Looper}.
+	 */
+	public synchronized void stop() {
+		for (Entry entry : entries)
+			entry.looper.stop();
+
+		NotifierJNI.stopNotifier(notifier);
+	}
+
+	/**
+	 * Sets the {@link ThreadSettings} (real-time priority and CPU affinity) for
+	 * the {@link LoopScheduler}'s thread. Must be called before the first
+	 * {@link #setMode(RobotMode)}.
+	 * 
+	 * @param threadSettings
+	 */
+	public void setThreadSettings(ThreadSettings threadSettings) {
+		this.threadSettings = threadSettings;
+	}
+
+	/**
+	 * Gets the {@link ThreadSettings} for the {@link LoopScheduler}'s thread, if
+	 * any.
+	 * 
+	 * @return threadSettings
+	 */
+	public ThreadSettings getThreadSettings() {
+		return threadSettings;
+	}
+
+	/**
+	 * Phase-locks base ticks to another periodic thread, so that each one fires
+	 * the given offset (in seconds, negative for before) after it. The
+	 * reference's period must be a multiple of the base period. Only applies to
+	 * the {@link LoopScheduler}'s own thread, not to {@link #step()}.
+	 * 
+	 * @param reference       (next expiration time of the other thread)
+	 * @param referencePeriod
+	 * @param offset
+	 * @throws IllegalArgumentException if the reference period is not a multiple
+	 *                                  of the base period.
+	 */
+	public void setPhaseLock(DoubleSupplier reference, double referencePeriod, double offset) {
+		double ratio = referencePeriod / basePeriod;
+
+		if (Math.round(ratio) < 1 || Math.abs(Math.round(ratio) - ratio) > 1e-9)
+			throw new IllegalArgumentException(String.format(
+					"[!] PHASE-LOCK PERIOD (%1$fs) IS NOT A MULTIPLE OF THE BASE PERIOD (%2$fs)", referencePeriod,
+					basePeriod));
+
+		phaseOffset = offset;
+		phaseReference = reference;
+	}
+
+	/**
+	 * Stops phase-locking base ticks, leaving them wherever they are.
+	 */
+	public void clearPhaseLock() {
+		phaseReference = null;
+		phaseError = 0;
+	}
+
+	/**
+	 * Gets the last phase error measured versus the phase-lock offset, in
+	 * seconds, or 0 if not phase-locked.
+	 * 
+	 * @return phaseError
+	 */
+	public double getPhaseError() {
+		return phaseError;
+	}
+
+	/**
+	 * Gets the base period of the {@link LoopScheduler}.
+	 * 
+	 * @return basePeriod
+	 */
+	public double getBasePeriod() {
+		return basePeriod;
+	}
+}
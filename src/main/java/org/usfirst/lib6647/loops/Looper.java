@@ -1,10 +1,17 @@
 package org.usfirst.lib6647.loops;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
+import org.usfirst.lib6647.util.AllocationProbe;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.RunningStats;
+import org.usfirst.lib6647.util.TimingHistogram;
+
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Notifier;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
@@ -12,27 +19,193 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * {@link #loops list}. They are started when the robot powers up and stopped
  * after the match. Copied over from:
  * https://github.com/Team254/FRC-2019-Public/blob/master/src/main/java/com/team254/frc2019/loops/Looper.java.
+ * 
+ * <p>
+ * The {@link Notifier} thread never takes a lock: {@link #loops} is an
+ * immutable array replaced on each {@link #register(Loop...)} call, and the
+ * running state is changed atomically by {@link #start()} and {@link #stop()}.
+ * 
+ * <p>
+ * Each tick also records, without allocating, its wake-up jitter, its total
+ * duration, and the duration of each {@link Loop}, into
+ * {@link TimingHistogram TimingHistograms}. Ticks that fire late because of an
+ * overrun are handled according to the {@link Looper}'s {@link OverrunPolicy}.
+ * 
+ * <p>
+ * A {@link Looper} can also be run by a {@link LoopScheduler} instead of its
+ * own {@link Notifier}, in which case the {@link Notifier} is never created.
+ * 
+ * <p>
+ * If given worker threads through {@link #setParallelism(int)},
+ * {@link Loop#isParallelSafe() parallel-safe} {@link Loop Loops} are fanned out
+ * to a {@link WorkerPool} while the rest run on the {@link Looper}'s thread,
+ * and every tick waits for all of them to finish.
+ * 
+ * <p>
+ * Time is read from the current {@link Clock}. With a virtual {@link Clock},
+ * the {@link Notifier} is never created, and each tick must be run through
+ * {@link #step()} (or a {@link LoopScheduler}) instead. Parallel-safe
+ * {@link Loop Loops} are then run in order, to keep results deterministic.
+ * 
+ * <p>
+ * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops} run last,
+ * through a {@link BestEffortQueue}, and only while at least
+ * {@link #setSlackThreshold(double) the slack threshold} is left in the period.
+ * 
+ * <p>
+ * Bytes allocated by the {@link Looper}'s thread on sampled ticks (not
+ * counting its {@link WorkerPool}) are measured by an {@link AllocationProbe},
+ * which also counts overrun ticks with a garbage collection during or right
+ * before them.
  */
 public class Looper implements ILooper {
+	/** Possible states of a {@link Looper}. */
+	private static final int STOPPED = 0, STARTING = 1, RUNNING = 2, STOPPING = 3;
+	/** Possible states of a preparation hook, see {@link #prepare()}. */
+	private static final int UNPREPARED = 0, PREPARING = 1, PREPARED = 2;
+
 	/** Period at which to run each {@link Loop}. */
 	private final double period;
 	/** Name of {@link Notifier}/{@link Looper} instance. */
 	private final String name;
 
-	/** Check to see if the {@link Looper} is currently running. */
-	private boolean running;
+	/** Current state of the {@link Looper}, see {@link #STOPPED} and others. */
+	private final AtomicInteger state = new AtomicInteger(STOPPED);
+	/** Thread currently inside a tick, null if none. */
+	private volatile Thread ticking = null;
+	/**
+	 * Whether a {@link #stop()} called from a {@link WorkerPool} thread is left
+	 * for the end of the current tick to finish.
+	 */
+	private final AtomicBoolean stopDeferred = new AtomicBoolean(false);
+
+	/**
+	 * Handles running {@link Loops} in a different Thread. Only created on the
+	 * first {@link #start()}, if not run by a {@link LoopScheduler}.
+	 */
+	private Notifier notifier = null;
+	/** Whether this {@link Looper} is run by a {@link LoopScheduler}, and which. */
+	private volatile boolean scheduled = false;
+	private volatile LoopScheduler scheduler = null;
+	/**
+	 * Optional {@link ThreadSettings} for the {@link Notifier}'s thread, applied
+	 * on its first tick.
+	 */
+	private volatile ThreadSettings threadSettings = null;
+	/**
+	 * Array holding each of this {@link Looper} instance's {@link Loop Loops}.
+	 * Never modified, only replaced by a new array.
+	 */
+	private volatile LoopEntry[] loops = new LoopEntry[0];
+	/**
+	 * Parallel-safe subset of {@link #loops}. Always published before
+	 * {@link #loops}.
+	 */
+	private volatile LoopEntry[] parallelLoops = new LoopEntry[0];
+	/**
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} subset of {@link #loops}.
+	 * Always published before {@link #loops}.
+	 */
+	private volatile LoopEntry[] bestEffortLoops = new LoopEntry[0];
+
+	/** {@link WorkerPool} for parallel-safe {@link Loop Loops}, if any. */
+	private volatile WorkerPool pool = null;
+	/**
+	 * Parallel-safe {@link Loop Loops} for the current tick, and the tick's
+	 * timestamp, read by the {@link WorkerPool}.
+	 */
+	private LoopEntry[] currentParallel = null;
+	private double currentTimestamp = 0;
+	/** Task run by the {@link WorkerPool} for each parallel-safe {@link Loop}. */
+	private final IntConsumer parallelTask = this::runParallel;
+
+	/**
+	 * {@link BestEffortQueue} for {@link LoopPriority#BEST_EFFORT BEST_EFFORT}
+	 * {@link Loop Loops}, the ones for the current tick, and the task running each
+	 * one.
+	 */
+	private final BestEffortQueue bestEffortQueue = new BestEffortQueue();
+	private LoopEntry[] currentBestEffort = null;
+	private final IntConsumer bestEffortTask = this::runBestEffort;
+	/**
+	 * Minimum time (in seconds) that must be left in the period to run a
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop}.
+	 */
+	private double slackThreshold;
+	/** Start of the current tick, in {@link Clock} nanoseconds. */
+	private long tickStart = 0;
+	/**
+	 * Wall time saved each tick by running {@link Loop Loops} in parallel (sum of
+	 * each {@link Loop}'s duration, minus the time actually taken), in seconds.
+	 */
+	private final RunningStats savedTimes = new RunningStats();
+
+	/** Timestamp of the last tick, and time elapsed between the last two. */
+	private double timestamp = 0;
+	private volatile double dt = 0;
+	/** Timestamp at which the next tick is expected. */
+	private double expectedTimestamp = 0;
+
+	/**
+	 * {@link TimingHistogram TimingHistograms} for wake-up jitter (versus the
+	 * expected timestamp) and total tick duration.
+	 */
+	private final TimingHistogram jitterTimes, tickTimes;
+	/**
+	 * Only publish every n-th call to {@link #outputToSmartDashboard()}, and the
+	 * number of calls so far.
+	 */
+	private int publishDecimation = 50, publishCalls = 0;
+
+	/** How to handle ticks that fire late, see {@link OverrunPolicy}. */
+	private OverrunPolicy overrunPolicy = OverrunPolicy.NONE;
+	/** Maximum amount of consecutive late ticks to run with CATCH_UP. */
+	private int maxBurst = 2;
+	/** Amount of consecutive late ticks run so far. */
+	private int burst = 0;
+	/** Whether the last tick took longer than the period. */
+	private boolean overran = false;
+	/** Whether {@link LoopPriority#LOW LOW} priority loops are dropped this tick. */
+	private boolean shedding = false;
+	/** Counters for ticks skipped, late ticks run, and ticks with dropped loops. */
+	private volatile long skippedTicks = 0, caughtUpTicks = 0, shedTicks = 0;
+	/** Bytes allocated per sampled tick, and overruns blamed on garbage collections. */
+	private final AllocationProbe allocations = new AllocationProbe();
+
+	/**
+	 * Minimum time (in seconds) between overrun warnings, and timestamp of the
+	 * last one.
+	 */
+	private double warningInterval = 1.0, lastWarning = Double.NEGATIVE_INFINITY;
 
-	/** Handles running {@link Loops} in a different Thread. */
-	private final Notifier notifier;
-	/** List holding each of this {@link Looper} instance's {@link Loop Loops}. */
-	private final List<Loop> loops;
+	/**
+	 * A registered {@link Loop}, along with the {@link TimingHistogram} for its
+	 * {@link Loop#onLoop(double)} duration.
+	 */
+	private static final class LoopEntry {
+		private final Loop loop;
+		private final boolean lowPriority, bestEffort, parallelSafe;
+		private final TimingHistogram times;
+		private final String key;
+		/** Duration of the last {@link Loop#onLoop(double)} call, 0 if skipped. */
+		private long lastTime = 0;
+		/** Whether {@link Loop#onPrepare(double)} has run since the last stop. */
+		private final AtomicInteger preparation = new AtomicInteger(UNPREPARED);
 
-	/** Object to ensure asynchronicity from every method. */
-	private final Object lock = new Object();
-	private double timestamp = 0, dt = 0;
+		private LoopEntry(Loop loop, double period, String key) {
+			this.loop = loop;
+			this.lowPriority = loop.getPriority() == LoopPriority.LOW;
+			this.bestEffort = loop.getPriority() == LoopPriority.BEST_EFFORT;
+			this.parallelSafe = loop.isParallelSafe();
+			this.times = new TimingHistogram(period);
+			this.key = key;
+		}
+	}
 
 	/** Check for whether it's the first time the {@link Loop} runs. */
-	private boolean firstStart = true, firstRun = true;
+	private boolean firstRun = true;
+	/** Whether every {@link Loop#onFirstStart(double)} has run yet. */
+	private final AtomicInteger firstStart = new AtomicInteger(UNPREPARED);
 
 	/**
 	 * Constructor for {@link Looper}. Runs each declared {@link Loop} at the
@@ -45,72 +218,455 @@ public class Looper implements ILooper {
 		this.period = period;
 		this.name = name;
 
-		loops = new ArrayList<>();
-		notifier = new Notifier(() -> {
-			synchronized (lock) {
-				if (running) {
-					if (firstRun) {
-						Thread.currentThread().setName(name);
-						Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
-						firstRun = false;
-					}
+		jitterTimes = new TimingHistogram(period);
+		tickTimes = new TimingHistogram(period);
+		slackThreshold = period * 0.2;
+	}
 
-					double now = Timer.getFPGATimestamp();
+	/**
+	 * Constructor for {@link Looper}. Runs each declared {@link Loop} at the
+	 * default {@link Looper#period rate} of 0.01 (10ms).
+	 * 
+	 * @param name
+	 */
+	public Looper(String name) {
+		this(0.01, name);
+	}
 
-					loops.forEach(loop -> loop.onLoop(now));
+	/**
+	 * Runs a single tick, as if fired on time. Called by the {@link Notifier}, or
+	 * meant for stepping this {@link Looper} with a virtual {@link Clock}, after
+	 * moving it forward by {@link #getPeriod()}.
+	 */
+	public void step() {
+		tick(expectedTimestamp);
+	}
 
-					dt = now - timestamp;
-					timestamp = now;
+	/**
+	 * Runs every registered {@link Loop}, for a tick that was meant to fire at the
+	 * given timestamp. Called by the {@link Notifier}, or a {@link LoopScheduler}.
+	 * 
+	 * @param scheduledTimestamp
+	 */
+	void tick(double scheduledTimestamp) {
+		ticking = Thread.currentThread();
+
+		try {
+			if (state.get() != RUNNING)
+				return;
+
+			if (firstRun && !scheduled) {
+				Thread.currentThread().setName(name);
+
+				if (threadSettings != null)
+					threadSettings.apply(name);
+				firstRun = false;
+			}
+
+			Clock clock = Clock.getInstance();
+			tickStart = clock.getNanos();
+			double now = clock.getTimestamp();
+
+			double lateness = now - scheduledTimestamp;
+			jitterTimes.record((long) (Math.abs(lateness) * 1e9));
+			expectedTimestamp = scheduledTimestamp + period;
+
+			// A tick firing a whole period late means at least one was missed.
+			if (lateness >= period) {
+				switch (overrunPolicy) {
+				case SKIP:
+					skippedTicks++;
+					reportOverrun(now);
+					return;
+				case CATCH_UP:
+					if (burst >= maxBurst) {
+						skippedTicks++;
+						reportOverrun(now);
+						return;
+					}
+
+					burst++;
+					caughtUpTicks++;
+					break;
+				default:
 				}
+			} else
+				burst = 0;
+
+			// Only once the tick is known to run, so that it's always ended.
+			allocations.begin();
+
+			shedding = overrunPolicy == OverrunPolicy.SHED && (overran || lateness >= period);
+			if (shedding)
+				shedTicks++;
+
+			LoopEntry[] snapshot = loops;
+			WorkerPool workers = clock.isVirtual() ? null : pool;
+
+			currentTimestamp = now;
+
+			// Fan out parallel-safe loops first, then run the rest on this thread.
+			if (workers != null) {
+				currentParallel = parallelLoops;
+				workers.start(currentParallel.length, parallelTask);
 			}
-		});
 
-		notifier.setName(name);
-		running = false;
+			for (int i = 0; i < snapshot.length; i++)
+				if (!snapshot[i].bestEffort && (workers == null || !snapshot[i].parallelSafe))
+					runLoop(snapshot[i], now);
+
+			if (workers != null) {
+				workers.join();
+
+				long serialTime = 0;
+				for (int i = 0; i < snapshot.length; i++)
+					if (!snapshot[i].bestEffort)
+						serialTime += snapshot[i].lastTime;
+
+				savedTimes.add((serialTime - (clock.getNanos() - tickStart)) * 1e-9);
+			}
+
+			// Then best-effort loops, for as long as there's slack left.
+			currentBestEffort = bestEffortLoops;
+			bestEffortQueue.run(currentBestEffort.length, bestEffortTask, this);
+
+			dt = now - timestamp;
+			timestamp = now;
+
+			long tickTime = clock.getNanos() - tickStart;
+			tickTimes.record(tickTime);
+
+			overran = tickTime > period * 1e9;
+			allocations.end(overran);
+			if (overran)
+				reportOverrun(now);
+		} finally {
+			ticking = null;
+
+			if (stopDeferred.compareAndSet(true, false))
+				finishStop();
+		}
 	}
 
 	/**
-	 * Constructor for {@link Looper}. Runs each declared {@link Loop} at the
-	 * default {@link Looper#period rate} of 0.01 (10ms).
+	 * Runs a single {@link Loop}, unless it's being shed, and records its
+	 * duration.
 	 * 
-	 * @param name
+	 * @param entry
+	 * @param now
 	 */
-	public Looper(String name) {
-		this(0.01, name);
+	private void runLoop(LoopEntry entry, double now) {
+		if (shedding && entry.lowPriority) {
+			entry.lastTime = 0;
+			return;
+		}
+
+		Clock clock = Clock.getInstance();
+		long loopStart = clock.getNanos();
+		entry.loop.onLoop(now);
+
+		entry.lastTime = clock.getNanos() - loopStart;
+		entry.times.record(entry.lastTime);
 	}
 
 	/**
-	 * Adds each given {@link Loop} to the {@link Looper#loops list}.
+	 * Runs the parallel-safe {@link Loop} at the given index, called by the
+	 * {@link WorkerPool}.
+	 * 
+	 * @param index
+	 */
+	private void runParallel(int index) {
+		runLoop(currentParallel[index], currentTimestamp);
+	}
+
+	/**
+	 * Runs the best-effort {@link Loop} at the given index, called by the
+	 * {@link BestEffortQueue}.
+	 * 
+	 * @param index
+	 */
+	private void runBestEffort(int index) {
+		runLoop(currentBestEffort[index], currentTimestamp);
+	}
+
+	/**
+	 * Sends a warning to the DriverStation about overruns, at most once every
+	 * {@link #warningInterval} seconds.
+	 * 
+	 * @param now
+	 */
+	private void reportOverrun(double now) {
+		if (now - lastWarning < warningInterval)
+			return;
+		lastWarning = now;
+
+		DriverStation.reportWarning(String.format(
+				"Looper '%1$s' overran its %2$.3fs period (%3$d overruns, %4$d ticks skipped, "
+						+ "%5$d caught up, %6$d shed so far)\n",
+				name, period, tickTimes.getOverruns(), skippedTicks, caughtUpTicks, shedTicks), false);
+	}
+
+	/**
+	 * Adds each given {@link Loop} to the {@link Looper#loops list}, by publishing
+	 * a new copy of it. {@link Loop Loops} sharing a name get an index appended to
+	 * their timings' key (e.g. "intake", "intake_2").
 	 * 
 	 * @param loops
 	 */
 	@Override
 	public synchronized void register(Loop... loops) {
-		synchronized (lock) {
-			for (Loop loop : loops) {
-				this.loops.add(loop);
-			}
+		LoopEntry[] current = this.loops;
+		LoopEntry[] updated = Arrays.copyOf(current, current.length + loops.length);
+
+		for (int i = 0; i < loops.length; i++) {
+			String loopName = loops[i].getName();
+			long index = Arrays.stream(updated, 0, current.length + i)
+					.filter(entry -> entry.loop.getName().equals(loopName)).count() + 1;
+
+			String key = name + "_looper_" + loopName + (index > 1 ? "_" + index : "");
+			updated[current.length + i] = new LoopEntry(loops[i], period, key);
+		}
+
+		parallelLoops = Arrays.stream(updated).filter(entry -> entry.parallelSafe && !entry.bestEffort)
+				.toArray(LoopEntry[]::new);
+		bestEffortLoops = Arrays.stream(updated).filter(entry -> entry.bestEffort).toArray(LoopEntry[]::new);
+		this.loops = updated;
+	}
+
+	@Override
+	public boolean isShedding() {
+		return shedding;
+	}
+
+	/**
+	 * Gets the time left until the end of the current tick's period, in seconds,
+	 * capped by the base tick's deadline when run by a {@link LoopScheduler}. Only
+	 * meaningful when called from within a tick.
+	 * 
+	 * @return remainingTime
+	 */
+	@Override
+	public double getRemainingTime() {
+		double remaining = period - (Clock.getInstance().getNanos() - tickStart) * 1e-9;
+
+		// Every Looper on the same base tick shares its LoopScheduler's deadline.
+		LoopScheduler owner = scheduler;
+		return owner != null ? Math.min(remaining, owner.getRemainingTime()) : remaining;
+	}
+
+	@Override
+	public boolean hasSlack() {
+		return getRemainingTime() >= slackThreshold;
+	}
+
+	/**
+	 * Sets the minimum time that must be left in the period to run a
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop}. Defaults to 20%
+	 * of the period.
+	 * 
+	 * @param slackThreshold (in seconds)
+	 */
+	public void setSlackThreshold(double slackThreshold) {
+		this.slackThreshold = slackThreshold;
+	}
+
+	/**
+	 * Gets the {@link BestEffortQueue} running this {@link Looper}'s
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops}, e.g. for its
+	 * deferral stats.
+	 * 
+	 * @return bestEffortQueue
+	 */
+	public BestEffortQueue getBestEffortQueue() {
+		return bestEffortQueue;
+	}
+
+	/**
+	 * Sets the {@link OverrunPolicy} for this {@link Looper}.
+	 * 
+	 * @param overrunPolicy
+	 */
+	public void setOverrunPolicy(OverrunPolicy overrunPolicy) {
+		this.overrunPolicy = overrunPolicy;
+	}
+
+	/**
+	 * Sets the {@link OverrunPolicy} for this {@link Looper}, along with the
+	 * maximum amount of consecutive late ticks to run with
+	 * {@link OverrunPolicy#CATCH_UP CATCH_UP}.
+	 * 
+	 * @param overrunPolicy
+	 * @param maxBurst
+	 */
+	public void setOverrunPolicy(OverrunPolicy overrunPolicy, int maxBurst) {
+		this.overrunPolicy = overrunPolicy;
+		this.maxBurst = maxBurst;
+	}
+
+	/**
+	 * Sets the minimum time between overrun warnings sent to the DriverStation.
+	 * 
+	 * @param warningInterval (in seconds)
+	 */
+	public void setWarningInterval(double warningInterval) {
+		this.warningInterval = warningInterval;
+	}
+
+	/**
+	 * Gets the amount of ticks skipped due to the {@link OverrunPolicy}.
+	 * 
+	 * @return skippedTicks
+	 */
+	public long getSkippedTicks() {
+		return skippedTicks;
+	}
+
+	/**
+	 * Gets the amount of late ticks run with {@link OverrunPolicy#CATCH_UP
+	 * CATCH_UP}.
+	 * 
+	 * @return caughtUpTicks
+	 */
+	public long getCaughtUpTicks() {
+		return caughtUpTicks;
+	}
+
+	/**
+	 * Gets the amount of ticks where {@link LoopPriority#LOW LOW} priority loops
+	 * were dropped, with {@link OverrunPolicy#SHED SHED}.
+	 * 
+	 * @return shedTicks
+	 */
+	public long getShedTicks() {
+		return shedTicks;
+	}
+
+	/**
+	 * Prepares every registered {@link Loop} for the next {@link #start()}, by
+	 * running {@link Loop#onFirstStart(double)} (the very first time) and
+	 * {@link Loop#onPrepare(double)}. Meant to be called from a background thread
+	 * while this {@link Looper} is stopped, so that {@link #start()} only has to
+	 * run {@link Loop#onStart(double)}. Does nothing if it's not stopped.
+	 * 
+	 * <p>
+	 * Hooks are run without holding this {@link Looper}'s lock, each one claimed
+	 * atomically, so that {@link #start()} never waits for more than the single
+	 * hook in progress. Each hook is a registered {@link Loop}'s whole
+	 * {@link Loop#onPrepare(double)}, so with
+	 * {@link org.usfirst.lib6647.subsystem.RobotMap RobotMap}'s aggregate loops,
+	 * {@link LoopScheduler#prepareInBackground(RobotMode...)} prepares each
+	 * aggregate as a whole rather than each subsystem's loop, and
+	 * {@link #start()} may wait for every subsystem in the aggregate in progress.
+	 */
+	public void prepare() {
+		if (state.get() != STOPPED)
+			return;
+
+		LoopEntry[] snapshot = loops;
+		double now = Clock.getInstance().getTimestamp();
+
+		if (firstStart.compareAndSet(UNPREPARED, PREPARING))
+			runFirstStart(snapshot, now);
+
+		// Leave whatever is left to start() once it's begun.
+		for (LoopEntry entry : snapshot)
+			if (state.get() == STOPPED && entry.preparation.compareAndSet(UNPREPARED, PREPARING))
+				runPrepare(entry, now);
+	}
+
+	/**
+	 * Runs every {@link Loop#onFirstStart(double)}, once claimed. Released again
+	 * if any of them throws, so that {@link #start()} retries.
+	 * 
+	 * @param snapshot
+	 * @param now
+	 */
+	private void runFirstStart(LoopEntry[] snapshot, double now) {
+		boolean done = false;
+
+		try {
+			for (LoopEntry entry : snapshot)
+				entry.loop.onFirstStart(now);
+			done = true;
+		} finally {
+			firstStart.set(done ? PREPARED : UNPREPARED);
+		}
+	}
+
+	/**
+	 * Runs a single {@link Loop#onPrepare(double)}, once claimed. Released again
+	 * if it throws, so that {@link #start()} retries.
+	 * 
+	 * @param entry
+	 * @param now
+	 */
+	private static void runPrepare(LoopEntry entry, double now) {
+		boolean done = false;
+
+		try {
+			entry.loop.onPrepare(now);
+			done = true;
+		} finally {
+			entry.preparation.set(done ? PREPARED : UNPREPARED);
+		}
+	}
+
+	/**
+	 * Claims a preparation hook for the current thread, waiting if another thread
+	 * is running it. The wait covers that whole hook, e.g. every subsystem's
+	 * {@link Loop#onPrepare(double)} under one of
+	 * {@link org.usfirst.lib6647.subsystem.RobotMap RobotMap}'s aggregate loops.
+	 * 
+	 * @param preparation
+	 * @return whether the hook still has to be run
+	 */
+	private static boolean claim(AtomicInteger preparation) {
+		while (true) {
+			if (preparation.compareAndSet(UNPREPARED, PREPARING))
+				return true;
+			else if (preparation.get() == PREPARED)
+				return false;
+
+			Thread.onSpinWait();
 		}
 	}
 
 	/**
-	 * Start registered {@link Loop Loops} in {@link Looper#loops}.
+	 * Start registered {@link Loop Loops} in {@link Looper#loops}. Any
+	 * {@link Loop} not yet {@link #prepare() prepared} is prepared first.
 	 */
 	public synchronized void start() {
-		if (!running) {
-			System.out.println("Starting " + name + " loops...");
+		if (!state.compareAndSet(STOPPED, STARTING))
+			return;
 
-			synchronized (lock) {
-				if (firstStart) {
-					timestamp = Timer.getFPGATimestamp();
-					loops.forEach(loop -> loop.onFirstStart(timestamp));
-				}
+		System.out.println("Starting " + name + " loops...");
 
-				timestamp = Timer.getFPGATimestamp();
-				loops.forEach(loop -> loop.onStart(timestamp));
+		Clock clock = Clock.getInstance();
+		LoopEntry[] snapshot = loops;
+		if (claim(firstStart))
+			runFirstStart(snapshot, clock.getTimestamp());
 
-				running = true;
-				firstStart = false;
+		double now = clock.getTimestamp();
+		for (LoopEntry entry : snapshot) {
+			if (claim(entry.preparation))
+				runPrepare(entry, now);
+
+			entry.loop.onStart(now);
+		}
+
+		timestamp = now;
+		burst = 0;
+		overran = false;
+		shedding = false;
+		expectedTimestamp = clock.getTimestamp() + period;
+
+		// Only publish RUNNING once every field above has been written.
+		state.set(RUNNING);
+
+		if (!scheduled && !clock.isVirtual()) {
+			if (notifier == null) {
+				notifier = new Notifier(this::step);
+				notifier.setName(name);
 			}
 
 			notifier.startPeriodic(period);
@@ -118,25 +674,221 @@ public class Looper implements ILooper {
 	}
 
 	/**
-	 * Stop registered {@link Loop Loops} in {@link Looper#loops}.
+	 * Stop registered {@link Loop Loops} in {@link Looper#loops}. If called from a
+	 * {@link WorkerPool} thread while a tick is in progress (e.g. from a
+	 * parallel-safe {@link Loop}), that tick may be waiting on the caller, so the
+	 * {@link Loop Loops} are only stopped once it ends.
 	 */
 	public synchronized void stop() {
-		if (running) {
-			System.out.println("Stopping " + name + " loops...");
+		if (!state.compareAndSet(RUNNING, STOPPING))
+			return;
+
+		System.out.println("Stopping " + name + " loops...");
+		if (notifier != null)
 			notifier.stop();
 
-			synchronized (lock) {
-				timestamp = Timer.getFPGATimestamp();
-				loops.forEach(loop -> loop.onStop(timestamp));
-				running = false;
-			}
+		Thread current = Thread.currentThread();
+		if (ticking != null && ticking != current && WorkerPool.isWorkerThread()) {
+			stopDeferred.set(true);
+
+			// Finish it here if the tick already ended before seeing it.
+			if (ticking == null && stopDeferred.compareAndSet(true, false))
+				finishStop();
+			return;
 		}
+
+		// Wait for a tick that might have already been in progress, unless called
+		// from within that very tick (e.g. from a Loop's onLoop()).
+		while (ticking != null && ticking != current)
+			Thread.onSpinWait();
+
+		finishStop();
+	}
+
+	/**
+	 * Runs every {@link Loop#onStop(double)}, once no tick is in progress (or
+	 * from within the tick stopping this {@link Looper}).
+	 */
+	private void finishStop() {
+		double now = Clock.getInstance().getTimestamp();
+		for (LoopEntry entry : loops) {
+			entry.loop.onStop(now);
+			entry.preparation.set(UNPREPARED);
+		}
+
+		state.set(STOPPED);
+	}
+
+	/**
+	 * Marks this {@link Looper} as run by a {@link LoopScheduler}, so that it
+	 * never starts its own {@link Notifier}.
+	 * 
+	 * @param scheduler
+	 * @throws IllegalStateException if it was already started on its own.
+	 */
+	synchronized void setScheduled(LoopScheduler scheduler) {
+		if (notifier != null)
+			throw new IllegalStateException(
+					String.format("[!] LOOPER '%s' HAS ALREADY BEEN STARTED WITH ITS OWN NOTIFIER", name));
+
+		this.scheduler = scheduler;
+		scheduled = true;
+	}
+
+	/**
+	 * Sets the amount of worker threads for running {@link Loop#isParallelSafe()
+	 * parallel-safe} {@link Loop Loops}, 0 to run every {@link Loop} on the
+	 * {@link Looper}'s thread (default). Should be called before {@link #start()},
+	 * and after setting the {@link ThreadSettings} of the thread running this
+	 * {@link Looper} (its own, or its {@link LoopScheduler}'s), which are applied
+	 * to every worker as well.
+	 * 
+	 * @param workers
+	 */
+	public synchronized void setParallelism(int workers) {
+		if (pool != null)
+			pool.shutdown();
+
+		LoopScheduler owner = scheduler;
+		ThreadSettings settings = owner != null ? owner.getThreadSettings() : threadSettings;
+
+		pool = workers > 0 ? new WorkerPool(name + "-worker", workers, settings) : null;
+	}
+
+	/**
+	 * Gets the statistics for the wall time saved each tick by running
+	 * {@link Loop Loops} in parallel, in seconds. Negative values mean running
+	 * them in parallel cost more than it saved.
+	 * 
+	 * @return savedTimes
+	 */
+	public RunningStats getSavedTimes() {
+		return savedTimes;
+	}
+
+	/**
+	 * Sets the {@link ThreadSettings} (real-time priority and CPU affinity) for
+	 * this {@link Looper}'s thread, applied on its first tick. Ignored if run by a
+	 * {@link LoopScheduler}, whose own {@link ThreadSettings} apply instead.
+	 * 
+	 * @param threadSettings
+	 */
+	public void setThreadSettings(ThreadSettings threadSettings) {
+		this.threadSettings = threadSettings;
+	}
+
+	/**
+	 * Gets the {@link ThreadSettings} for this {@link Looper}'s thread, if any.
+	 * Check {@link ThreadSettings#isApplied()} to see if they've been applied yet.
+	 * 
+	 * @return threadSettings
+	 */
+	public ThreadSettings getThreadSettings() {
+		return threadSettings;
+	}
+
+	/**
+	 * Gets the period of this {@link Looper}.
+	 * 
+	 * @return period
+	 */
+	public double getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Gets the name of this {@link Looper}.
+	 * 
+	 * @return name
+	 */
+	public String getName() {
+		return name;
 	}
 
 	/**
-	 * Output {@link Looper#dt DT} to SmartDashboard.
+	 * Whether or not the {@link Looper} is currently running.
+	 * 
+	 * @return running
+	 */
+	public boolean isRunning() {
+		return state.get() == RUNNING;
+	}
+
+	/**
+	 * Gets the {@link TimingHistogram} for the wake-up jitter of each tick.
+	 * 
+	 * @return jitterTimes
+	 */
+	public TimingHistogram getJitterTimes() {
+		return jitterTimes;
+	}
+
+	/**
+	 * Gets the {@link TimingHistogram} for the total duration of each tick.
+	 * 
+	 * @return tickTimes
+	 */
+	public TimingHistogram getTickTimes() {
+		return tickTimes;
+	}
+
+	/**
+	 * Gets the {@link AllocationProbe} measuring this {@link Looper}'s thread.
+	 * 
+	 * @return allocations
+	 */
+	public AllocationProbe getAllocations() {
+		return allocations;
+	}
+
+	/**
+	 * Sets how often {@link #outputToSmartDashboard()} actually publishes the
+	 * {@link TimingHistogram TimingHistograms}, e.g. 50 means only every 50th
+	 * call.
+	 * 
+	 * @param publishDecimation
+	 */
+	public void setPublishDecimation(int publishDecimation) {
+		this.publishDecimation = Math.max(1, publishDecimation);
+	}
+
+	/**
+	 * Clears every {@link TimingHistogram}.
+	 */
+	public void resetTimes() {
+		jitterTimes.reset();
+		tickTimes.reset();
+
+		for (LoopEntry entry : loops)
+			entry.times.reset();
+	}
+
+	/**
+	 * Output {@link Looper#dt DT} to SmartDashboard. The
+	 * {@link TimingHistogram TimingHistograms} are only published every
+	 * {@link #publishDecimation} calls.
 	 */
 	public void outputToSmartDashboard() {
 		SmartDashboard.putNumber(name + "_looper_dt", dt);
+
+		if (++publishCalls < publishDecimation)
+			return;
+		publishCalls = 0;
+
+		SmartDashboard.putNumber(name + "_looper_skipped", skippedTicks);
+		SmartDashboard.putNumber(name + "_looper_caught_up", caughtUpTicks);
+		SmartDashboard.putNumber(name + "_looper_shed", shedTicks);
+
+		if (pool != null)
+			SmartDashboard.putNumber(name + "_looper_parallel_saved", savedTimes.getMean());
+		if (bestEffortLoops.length > 0)
+			bestEffortQueue.outputToSmartDashboard(name + "_looper_best_effort");
+
+		jitterTimes.outputToSmartDashboard(name + "_looper_jitter");
+		tickTimes.outputToSmartDashboard(name + "_looper_tick");
+		allocations.outputToSmartDashboard(name + "_looper");
+
+		for (LoopEntry entry : loops)
+			entry.times.outputToSmartDashboard(entry.key);
 	}
-}
\ No newline at end of file
+}
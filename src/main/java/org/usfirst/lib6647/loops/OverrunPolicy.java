@@ -0,0 +1,14 @@
+package org.usfirst.lib6647.loops;
+
+/**
+ * Enum holding possible ways for a {@link Looper} to handle ticks that fire
+ * late because a previous tick overran its period: NONE, which runs every tick
+ * regardless (so late ticks bunch up); SKIP, which drops every tick that fires
+ * a whole period (or more) late; CATCH_UP, which runs late ticks in a burst of
+ * up to a set size, then drops the rest; and SHED, which runs every tick, but
+ * drops {@link LoopPriority#LOW LOW} priority {@link Loop Loops} on a late
+ * tick, or right after an overrun.
+ */
+public enum OverrunPolicy {
+	NONE, SKIP, CATCH_UP, SHED
+}
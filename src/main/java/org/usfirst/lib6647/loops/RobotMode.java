@@ -0,0 +1,9 @@
+package org.usfirst.lib6647.loops;
+
+/**
+ * Enum holding the robot's possible modes, used by {@link LoopScheduler} to
+ * decide which {@link Looper Loopers} should be running.
+ */
+public enum RobotMode {
+	DISABLED, AUTONOMOUS, TELEOP, TEST
+}
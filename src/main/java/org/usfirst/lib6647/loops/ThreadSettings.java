@@ -0,0 +1,268 @@
+package org.usfirst.lib6647.loops;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Real-time scheduling priority and CPU affinity for a {@link Looper} or
+ * {@link LoopScheduler} thread. Unlike Thread#setPriority(), which does nothing
+ * on the roboRIO's JVM, the priority is set through WPILib's {@link Threads},
+ * and the affinity through 'taskset'. The priority is applied from the thread
+ * itself, while the affinity is applied from a separate thread (so the caller
+ * never waits on 'taskset'), and whatever was actually applied can be read back
+ * afterwards.
+ */
+public class ThreadSettings {
+	/** Whether to use real-time (SCHED_FIFO) scheduling, and its priority. */
+	private final boolean realTime;
+	private final int priority;
+	/** CPUs the thread is allowed to run on, or empty to leave it as-is. */
+	private final int[] cpus;
+
+	/** Whether {@link #apply(String)} has finished, and if it succeeded. */
+	private volatile boolean applied = false, priorityApplied = false, affinityApplied = false;
+	/** Priority and scheduling actually in effect after {@link #apply(String)}. */
+	private volatile int appliedPriority = 0;
+	private volatile boolean appliedRealTime = false;
+	/** CPU affinity actually in effect after {@link #apply(String)}. */
+	private volatile String appliedAffinity = "";
+
+	/**
+	 * Constructor for {@link ThreadSettings}.
+	 * 
+	 * @param realTime
+	 * @param priority (1-99 if real-time, 0 otherwise)
+	 * @param cpus     (none to leave the CPU affinity as-is)
+	 */
+	public ThreadSettings(boolean realTime, int priority, int... cpus) {
+		this.realTime = realTime;
+		this.priority = priority;
+		this.cpus = cpus.clone();
+	}
+
+	/**
+	 * Creates a copy of these settings, not yet applied, e.g. to apply them to
+	 * another thread while still being able to read back what was applied to
+	 * each one.
+	 * 
+	 * @return copy
+	 */
+	public ThreadSettings copy() {
+		return new ThreadSettings(realTime, priority, cpus);
+	}
+
+	/**
+	 * Applies these settings to the current thread. The priority is set right
+	 * away, while the CPU affinity is set from a separate thread, through the
+	 * current thread's captured ID. Any failure is reported to the DriverStation,
+	 * but never thrown.
+	 * 
+	 * @param threadName (for error messages)
+	 */
+	public void apply(String threadName) {
+		priorityApplied = Threads.setCurrentThreadPriority(realTime, priority);
+		if (!priorityApplied)
+			report(threadName, String.format("could not set %1$s priority %2$d (missing permissions?)",
+					realTime ? "real-time" : "normal", priority));
+
+		appliedPriority = Threads.getCurrentThreadPriority();
+		appliedRealTime = Threads.getCurrentThreadIsRealTime();
+
+		String tid;
+		try {
+			tid = getThreadId();
+		} catch (IOException e) {
+			tid = null; // Not running on Linux, there's no affinity to set.
+		}
+
+		final String target = tid;
+		Thread affinity = new Thread(() -> finishApply(threadName, target), threadName + " affinity");
+		affinity.setDaemon(true);
+		affinity.start();
+	}
+
+	/**
+	 * Sets and reads back the CPU affinity of the thread with the given ID, then
+	 * marks these settings as applied. Runs on its own thread, since 'taskset'
+	 * can take a while.
+	 * 
+	 * @param threadName
+	 * @param tid        (null if unknown)
+	 */
+	private void finishApply(String threadName, String tid) {
+		if (tid != null) {
+			if (cpus.length > 0)
+				affinityApplied = applyAffinity(threadName, tid);
+
+			appliedAffinity = readAffinity(tid);
+		} else
+			appliedAffinity = "unknown";
+
+		applied = true;
+
+		System.out.println("Thread '" + threadName + "' running at " + this);
+	}
+
+	/**
+	 * Sets the CPU affinity of the thread with the given ID through 'taskset',
+	 * since Java has no way of doing so.
+	 * 
+	 * @param threadName
+	 * @param tid
+	 * @return success
+	 */
+	private boolean applyAffinity(String threadName, String tid) {
+		StringBuilder list = new StringBuilder();
+		for (int cpu : cpus)
+			list.append(list.length() > 0 ? "," : "").append(cpu);
+
+		try {
+			Process taskset = new ProcessBuilder("taskset", "-p", "-c", list.toString(), tid)
+					.redirectErrorStream(true).start();
+
+			if (!taskset.waitFor(1, TimeUnit.SECONDS)) {
+				taskset.destroy();
+				report(threadName, "timed out setting CPU affinity " + list);
+				return false;
+			} else if (taskset.exitValue() != 0) {
+				report(threadName, "could not set CPU affinity " + list + " (taskset exit code "
+						+ taskset.exitValue() + ")");
+				return false;
+			}
+
+			return true;
+		} catch (IOException e) {
+			report(threadName, "could not set CPU affinity " + list + ": " + e.getLocalizedMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the current thread's native (Linux) thread ID.
+	 * 
+	 * @return tid
+	 * @throws IOException if /proc/thread-self can't be read.
+	 */
+	private static String getThreadId() throws IOException {
+		// '/proc/thread-self' links to '<pid>/task/<tid>'.
+		Path link = Files.readSymbolicLink(Paths.get("/proc/thread-self"));
+		return link.getFileName().toString();
+	}
+
+	/**
+	 * Reads the CPU affinity of the thread with the given ID from /proc, or
+	 * "unknown" if it can't be read.
+	 * 
+	 * @param tid
+	 * @return affinity
+	 */
+	private static String readAffinity(String tid) {
+		try {
+			List<String> status = Files.readAllLines(Paths.get("/proc/self/task", tid, "status"));
+			for (String line : status)
+				if (line.startsWith("Cpus_allowed_list:"))
+					return line.substring("Cpus_allowed_list:".length()).trim();
+		} catch (IOException e) {
+			// Not running on Linux, nothing to read.
+		}
+
+		return "unknown";
+	}
+
+	/**
+	 * Reports an error applying these settings to the DriverStation.
+	 * 
+	 * @param threadName
+	 * @param message
+	 */
+	private static void report(String threadName, String message) {
+		String error = String.format("[!] THREAD '%1$s' SETTINGS ERROR:\n\t%2$s", threadName.toUpperCase(), message);
+
+		System.out.println(error);
+		DriverStation.reportWarning(error, false);
+	}
+
+	/**
+	 * Whether {@link #apply(String)} has finished applying every setting yet.
+	 * 
+	 * @return applied
+	 */
+	public boolean isApplied() {
+		return applied;
+	}
+
+	/**
+	 * Whether the requested priority was applied successfully.
+	 * 
+	 * @return priorityApplied
+	 */
+	public boolean isPriorityApplied() {
+		return priorityApplied;
+	}
+
+	/**
+	 * Whether the requested CPU affinity was applied successfully.
+	 * 
+	 * @return affinityApplied
+	 */
+	public boolean isAffinityApplied() {
+		return affinityApplied;
+	}
+
+	/**
+	 * Gets the priority in effect after {@link #apply(String)}.
+	 * 
+	 * @return appliedPriority
+	 */
+	public int getAppliedPriority() {
+		return appliedPriority;
+	}
+
+	/**
+	 * Whether real-time scheduling is in effect after {@link #apply(String)}.
+	 * 
+	 * @return appliedRealTime
+	 */
+	public boolean isAppliedRealTime() {
+		return appliedRealTime;
+	}
+
+	/**
+	 * Gets the CPU affinity (as a list, e.g. "0-1") in effect after
+	 * {@link #apply(String)}.
+	 * 
+	 * @return appliedAffinity
+	 */
+	public String getAppliedAffinity() {
+		return appliedAffinity;
+	}
+
+	/**
+	 * Output the applied settings to SmartDashboard, with the given key as
+	 * prefix.
+	 * 
+	 * @param key
+	 */
+	public void outputToSmartDashboard(String key) {
+		SmartDashboard.putBoolean(key + "_realtime", appliedRealTime);
+		SmartDashboard.putNumber(key + "_priority", appliedPriority);
+		SmartDashboard.putString(key + "_affinity", appliedAffinity);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%1$s priority %2$d, CPUs %3$s", appliedRealTime ? "real-time" : "normal",
+				appliedPriority, appliedAffinity);
+	}
+}
@@ -0,0 +1,202 @@
+package org.usfirst.lib6647.loops;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntConsumer;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Small, fixed pool of worker threads for running independent tasks within a
+ * single tick. Tasks are numbered from 0 to count - 1 and claimed one at a time
+ * by whichever thread is free, including the thread calling {@link #join()}.
+ * 
+ * <p>
+ * Starting and joining a batch of tasks never allocates: workers are woken up
+ * and put to sleep with {@link LockSupport}, and tasks are claimed from an
+ * atomic counter.
+ * 
+ * <p>
+ * The claim counter packs the batch's generation, size and next index into a
+ * single value, which is only ever moved forward through compare-and-set. A
+ * worker still looping from a previous batch can therefore never claim an index
+ * twice, or one that belongs to a batch it hasn't seen being published.
+ */
+public class WorkerPool {
+	/** Worker threads. */
+	private final Thread[] workers;
+
+	/** Bits used by the size and next index of a batch, in {@link #claims}. */
+	private static final int INDEX_BITS = 24;
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+	/** Generation, size and next index of the current batch, packed together. */
+	private final AtomicLong claims = new AtomicLong();
+	/** Tasks yet to finish. */
+	private final AtomicInteger remaining = new AtomicInteger();
+	/** Task to run for each index of the current batch. */
+	private volatile IntConsumer task = null;
+	/** Incremented for each new batch, so that workers know when to wake up. */
+	private volatile int generation = 0;
+	/** Thread waiting for the current batch to finish. */
+	private volatile Thread joiner = null;
+	/** Whether the {@link WorkerPool} has been shut down. */
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Thread type of every worker, so that code running a task can tell it's on
+	 * one (see {@link #isWorkerThread()}).
+	 */
+	private static final class Worker extends Thread {
+		private Worker(Runnable target, String name) {
+			super(target, name);
+		}
+	}
+
+	/**
+	 * Constructor for {@link WorkerPool}. Starts each worker thread right away,
+	 * applying the given {@link ThreadSettings} (if any) to each one before it
+	 * runs any task.
+	 * 
+	 * @param name
+	 * @param threads
+	 * @param threadSettings (null to leave them as-is)
+	 */
+	public WorkerPool(String name, int threads, ThreadSettings threadSettings) {
+		workers = new Thread[threads];
+
+		for (int i = 0; i < threads; i++) {
+			String workerName = name + "-" + i;
+			ThreadSettings settings = threadSettings != null ? threadSettings.copy() : null;
+
+			workers[i] = new Worker(() -> {
+				if (settings != null)
+					settings.apply(workerName);
+				workerLoop();
+			}, workerName);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Constructor for {@link WorkerPool}. Starts each worker thread right away.
+	 * 
+	 * @param name
+	 * @param threads
+	 */
+	public WorkerPool(String name, int threads) {
+		this(name, threads, null);
+	}
+
+	/**
+	 * Starts running the given task for every index from 0 to count - 1, on the
+	 * worker threads. Must be followed by {@link #join()}, from the same thread,
+	 * before starting another batch.
+	 * 
+	 * @param count
+	 * @param task
+	 * @throws IllegalArgumentException if count is too large.
+	 */
+	public void start(int count, IntConsumer task) {
+		if (count < 0 || count > INDEX_MASK)
+			throw new IllegalArgumentException(String.format("[!] INVALID WORKER BATCH SIZE %1$d", count));
+
+		this.task = task;
+		this.joiner = Thread.currentThread();
+		remaining.set(count);
+
+		// Publish the batch only once everything else is in place.
+		long batch = (claims.get() >>> (2 * INDEX_BITS)) + 1;
+		claims.set(batch << (2 * INDEX_BITS) | (long) count << INDEX_BITS);
+		this.generation++;
+
+		for (Thread worker : workers)
+			LockSupport.unpark(worker);
+	}
+
+	/**
+	 * Helps run any task not yet claimed, then waits for every task in the
+	 * current batch to finish.
+	 */
+	public void join() {
+		work();
+
+		while (remaining.get() > 0)
+			LockSupport.park(this);
+	}
+
+	/**
+	 * Claims and runs tasks from the current batch until there are none left.
+	 */
+	private void work() {
+		while (true) {
+			long claim = claims.get();
+			int count = (int) ((claim >>> INDEX_BITS) & INDEX_MASK), i = (int) (claim & INDEX_MASK);
+
+			if (i >= count)
+				return;
+			else if (!claims.compareAndSet(claim, claim + 1))
+				continue;
+
+			try {
+				task.accept(i);
+			} catch (RuntimeException e) {
+				String error = String.format("[!] WORKER TASK %1$d THREW AN EXCEPTION:\n\t%2$s", i, e);
+
+				System.out.println(error);
+				DriverStation.reportError(error, e.getStackTrace());
+			} finally {
+				if (remaining.decrementAndGet() == 0)
+					LockSupport.unpark(joiner);
+			}
+		}
+	}
+
+	/**
+	 * Main loop of each worker thread. Sleeps until a new batch is started.
+	 */
+	private void workerLoop() {
+		int seen = generation;
+
+		while (!shutdown) {
+			if (generation == seen) {
+				LockSupport.park(this);
+				continue;
+			}
+
+			seen = generation;
+			work();
+		}
+	}
+
+	/**
+	 * Whether the current thread is a worker of any {@link WorkerPool}, i.e. it's
+	 * running a task on behalf of a thread waiting on {@link #join()}.
+	 * 
+	 * @return isWorker
+	 */
+	public static boolean isWorkerThread() {
+		return Thread.currentThread() instanceof Worker;
+	}
+
+	/**
+	 * Gets the number of worker threads (not counting the joining thread).
+	 * 
+	 * @return threads
+	 */
+	public int getThreadCount() {
+		return workers.length;
+	}
+
+	/**
+	 * Stops every worker thread, once their current task is done.
+	 */
+	public void shutdown() {
+		shutdown = true;
+
+		for (Thread worker : workers)
+			LockSupport.unpark(worker);
+	}
+}
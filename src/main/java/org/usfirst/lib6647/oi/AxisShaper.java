@@ -0,0 +1,124 @@
+package org.usfirst.lib6647.oi;
+
+/**
+ * Shapes a single {@link JController} axis: applies a deadband (rescaling what's
+ * left back to the full range), then a response curve, then a rate limit. The
+ * curve is precomputed into a lookup table, so shaping never allocates, and is
+ * meant to be run once per {@link JController#poll()}.
+ */
+public class AxisShaper {
+	/**
+	 * Enum holding possible response curves: LINEAR, which leaves the input
+	 * as-is; CUBIC, which blends the input with its cube by a given weight; and
+	 * EXPO, which raises the input's magnitude to a given exponent.
+	 */
+	public enum Curve {
+		LINEAR, CUBIC, EXPO
+	}
+
+	/** Amount of entries in the {@link #lut lookup table}. */
+	private static final int LUT_SIZE = 257;
+
+	/** Deadband, and maximum rate of change per second (0 for none). */
+	private final double deadband, rateLimit;
+	/** Response curve for magnitudes from 0 to 1, after the deadband. */
+	private final double[] lut = new double[LUT_SIZE];
+
+	/** Last output, and the timestamp it was shaped at (NaN if none yet). */
+	private double lastOutput = 0, lastTimestamp = Double.NaN;
+
+	/**
+	 * Constructor for {@link AxisShaper}.
+	 * 
+	 * @param deadband  (from 0 to 1)
+	 * @param curve
+	 * @param parameter (weight from 0 to 1 for CUBIC, exponent above 0 for EXPO)
+	 * @param rateLimit (per second, 0 for none)
+	 * @throws IllegalArgumentException if any value is out of range.
+	 */
+	public AxisShaper(double deadband, Curve curve, double parameter, double rateLimit) {
+		if (deadband < 0 || deadband >= 1)
+			throw new IllegalArgumentException(String.format("[!] INVALID DEADBAND %1$f, MUST BE IN [0, 1)", deadband));
+		if (curve == Curve.CUBIC && (parameter < 0 || parameter > 1))
+			throw new IllegalArgumentException(
+					String.format("[!] INVALID CUBIC WEIGHT %1$f, MUST BE IN [0, 1]", parameter));
+		if (curve == Curve.EXPO && parameter <= 0)
+			throw new IllegalArgumentException(
+					String.format("[!] INVALID EXPO EXPONENT %1$f, MUST BE ABOVE 0", parameter));
+		if (rateLimit < 0)
+			throw new IllegalArgumentException(
+					String.format("[!] INVALID RATE LIMIT %1$f, MUST NOT BE NEGATIVE", rateLimit));
+
+		this.deadband = deadband;
+		this.rateLimit = rateLimit;
+
+		for (int i = 0; i < LUT_SIZE; i++) {
+			double x = (double) i / (LUT_SIZE - 1);
+
+			switch (curve) {
+			case CUBIC:
+				lut[i] = parameter * x * x * x + (1 - parameter) * x;
+				break;
+			case EXPO:
+				lut[i] = Math.pow(x, parameter);
+				break;
+			default:
+				lut[i] = x;
+			}
+		}
+	}
+
+	/**
+	 * Constructor for {@link AxisShaper}, with only a deadband.
+	 * 
+	 * @param deadband (from 0 to 1)
+	 */
+	public AxisShaper(double deadband) {
+		this(deadband, Curve.LINEAR, 0, 0);
+	}
+
+	/**
+	 * Shapes a raw axis value, read at the given timestamp.
+	 * 
+	 * @param raw
+	 * @param timestamp
+	 * @return shaped value
+	 */
+	public double apply(double raw, double timestamp) {
+		double magnitude = Math.abs(raw), output = 0;
+
+		if (magnitude > deadband) {
+			double position = Math.min(1.0, (magnitude - deadband) / (1 - deadband)) * (LUT_SIZE - 1);
+			int index = Math.min((int) position, LUT_SIZE - 2);
+
+			output = Math.copySign(lut[index] + (lut[index + 1] - lut[index]) * (position - index), raw);
+		}
+
+		if (rateLimit > 0 && !Double.isNaN(lastTimestamp)) {
+			double maxDelta = rateLimit * Math.max(0, timestamp - lastTimestamp);
+			output = Math.max(lastOutput - maxDelta, Math.min(lastOutput + maxDelta, output));
+		}
+
+		lastOutput = output;
+		lastTimestamp = timestamp;
+
+		return output;
+	}
+
+	/**
+	 * Gets the last shaped value.
+	 * 
+	 * @return lastOutput
+	 */
+	public double getLastOutput() {
+		return lastOutput;
+	}
+
+	/**
+	 * Resets the rate limit, so that the next value is let through as-is.
+	 */
+	public void reset() {
+		lastOutput = 0;
+		lastTimestamp = Double.NaN;
+	}
+}
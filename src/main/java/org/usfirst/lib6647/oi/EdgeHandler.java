@@ -0,0 +1,15 @@
+package org.usfirst.lib6647.oi;
+
+/**
+ * Interface for handlers of {@link InputEdge InputEdges}, dispatched by a
+ * {@link JController} on each {@link JController#poll()}.
+ */
+@FunctionalInterface
+public interface EdgeHandler {
+	/**
+	 * Code to run on the {@link InputEdge} this handler was registered for.
+	 * 
+	 * @param timestamp (of the poll the edge was detected on)
+	 */
+	public void onEdge(double timestamp);
+}
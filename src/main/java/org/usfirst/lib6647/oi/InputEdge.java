@@ -0,0 +1,11 @@
+package org.usfirst.lib6647.oi;
+
+/**
+ * Enum holding the transitions a {@link JController} input can go through
+ * between two {@link JController#poll() polls}: PRESSED, when it just became
+ * active; RELEASED, when it just stopped being active; and HELD, for every poll
+ * it stays active after being pressed.
+ */
+public enum InputEdge {
+	PRESSED, RELEASED, HELD
+}
@@ -1,40 +1,119 @@
 package org.usfirst.lib6647.oi;
 
+import java.util.AbstractMap;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import org.usfirst.lib6647.util.Clock;
 import org.usfirst.lib6647.util.JSONInitException;
 import org.usfirst.lib6647.util.JSONReader;
 
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
-import edu.wpi.first.wpilibj.Joystick;
 import edu.wpi.first.wpilibj2.command.button.Button;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 
 /**
  * Wrapper for the {@link GenericHID} class for easy {@link Button}
  * initialization, among other things.
+ * 
+ * <p>
+ * Once {@link #poll()} is called, every axis, button and POV is read from a
+ * single snapshot taken by it, instead of going through the
+ * {@link DriverStation} (and its lock) on each call. {@link #poll()} should be
+ * called once per cycle, before anything reads this {@link JController}.
+ * 
+ * <p>
+ * {@link Button Buttons} are kept in a single array, indexed by kind (raw
+ * buttons, then dPads, dPad angles and Sticks), and only created the first time
+ * they're asked for. Friendly names from its profile are resolved to an index
+ * once, when the {@link JController} is constructed.
+ * 
+ * <p>
+ * On each {@link #poll()}, the state of every input is also packed into a
+ * bitmask and compared to the previous one, dispatching each
+ * {@link InputEdge} to the {@link EdgeHandler EdgeHandlers} registered for it
+ * through {@link #on(String, InputEdge, EdgeHandler)}. Only inputs with an edge
+ * are visited, so the cost doesn't grow with the amount of handlers.
+ * 
+ * <p>
+ * Axes can also be shaped by an {@link AxisShaper} (deadband, response curve
+ * and rate limit), declared in the profile's "axes" array or set through
+ * {@link #setAxisShaper(int, AxisShaper)}. Shaping is done once per
+ * {@link #poll()}, and read through {@link #getShapedAxis(int)},
+ * {@link #getLeftAxis()} and {@link #getRightAxis()}.
  */
 public class JController extends GenericHID {
-	/** HashMap storing the {@link JController}'s {@link Button Buttons}. */
-	public HashMap<String, Button> buttons = new HashMap<>();
+	/** Maximum amount of axes and POVs a {@link JController} can have. */
+	private static final int MAX_AXES = 12, MAX_POVS = 12;
+	/**
+	 * Index of the first {@link Button} of each kind in {@link #createdButtons}: raw
+	 * buttons, dPads (any angle), dPads at each of their 8 angles, and Sticks in
+	 * each of their 3 directions.
+	 */
+	private static final int RAW = 0, DPAD = RAW + 32, DPAD_ANGLE = DPAD + MAX_POVS,
+			STICK = DPAD_ANGLE + MAX_POVS * 8, BUTTON_COUNT = STICK + MAX_AXES * 3;
+
+	/** Amount of words needed for a bitmask with a bit per {@link Button}. */
+	private static final int STATE_WORDS = (BUTTON_COUNT + 63) / 64;
+
+	/** Every {@link Button} created so far, null for those not yet asked for. */
+	private final Button[] createdButtons = new Button[BUTTON_COUNT];
+	/**
+	 * Every {@link Button} by its name (e.g. "Button1", "dPad0_90" or
+	 * "Stick1_-1"), each one created the first time it's asked for. Only those
+	 * created so far are listed, and it can't be modified.
+	 * 
+	 * <p>
+	 * This used to be a mutable {@link HashMap} filled with every {@link Button}
+	 * up front. Reading it through the {@link Map} interface still works, but code
+	 * that declared it as a {@link HashMap}, reassigned it or wrote to it no
+	 * longer compiles or throws {@link UnsupportedOperationException}.
+	 * 
+	 * @deprecated use {@link #get(String)} instead, or {@link #getButtons()} to go
+	 *             through every {@link Button} created so far.
+	 */
+	@Deprecated
+	public final Map<String, Button> buttons = new ButtonView();
+	/** Index in {@link #createdButtons} for each friendly name in the profile. */
+	private final HashMap<String, Integer> profileIndices = new HashMap<>();
 	/** Left or right axis of the {@link JController} (assuming it's a gamepad). */
 	private int leftAxis = 1, rightAxis = 5;
 
+	/** Whether {@link #poll()} has been called, so that the snapshot is valid. */
+	private boolean polled = false;
+	/** Snapshot of every button (bit 0 being button 1), and of axis/POV counts. */
+	private int buttonState = 0, axisCount = 0, povCount = 0;
+	/** Snapshot of every axis and POV. */
+	private final double[] axes = new double[MAX_AXES];
+	private final int[] povs = new int[MAX_POVS];
+	/** {@link AxisShaper} for each axis (null if none), and each shaped axis. */
+	private final AxisShaper[] shapers = new AxisShaper[MAX_AXES];
+	private final double[] shapedAxes = new double[MAX_AXES];
+
+	/** Active inputs on the current and previous {@link #poll()}, bit per index. */
+	private final long[] state = new long[STATE_WORDS], previousState = new long[STATE_WORDS];
 	/**
-	 * {@link JsonNode} holding the {@link JController}'s profile (friendly
-	 * {@link Button} names).
+	 * {@link EdgeHandler EdgeHandlers} for each {@link InputEdge} and input
+	 * index (null if none), along with a bitmask of the inputs that have any.
 	 */
-	private JsonNode profile;
+	private final EdgeHandler[][][] handlers = new EdgeHandler[InputEdge.values().length][BUTTON_COUNT][];
+	private final long[][] handledInputs = new long[InputEdge.values().length][STATE_WORDS];
 
 	/**
 	 * Constructor for {@link JController}.
 	 * 
-	 * Initializes each and every {@link Button} from the {@link Joystick} found at
-	 * the given port. Also initializes {@link Button Buttons} for each of the axes
-	 * and POVs. Also initializes its {@link #profile} if possible.
+	 * Resolves every friendly {@link Button} name in its profile, if possible.
+	 * {@link Button Buttons} themselves are only created when first asked for.
 	 * 
 	 * @param port
 	 */
@@ -42,7 +121,7 @@ public class JController extends GenericHID {
 		super(port);
 
 		try {
-			profile = JSONReader.getInstance().getNode("Profiles", getName());
+			compileProfile(JSONReader.getInstance().getNode("Profiles", getName()));
 		} catch (JSONInitException e) {
 			String error = String.format(
 					"[!] COULD NOT INITIALIZE CONTROLLER PROFILE FOR CONTROLLER '%1$s', USER-FRIENDLY NAMES WON'T WORK!\n\t%2$s",
@@ -51,24 +130,488 @@ public class JController extends GenericHID {
 			System.out.println(error);
 			DriverStation.reportError(error, false);
 		}
+	}
 
-		// Button initialization. Starting at 1.
-		for (int i = 1; i <= this.getButtonCount(); i++)
-			buttons.put("Button" + i, new JoystickButton(this, i));
+	/**
+	 * Resolves every friendly name in the given profile to its index in
+	 * {@link #createdButtons}, reporting any that can't be resolved.
+	 * 
+	 * @param profile
+	 */
+	private void compileProfile(JsonNode profile) {
+		if (profile == null) {
+			String warning = String.format("[!] NO PROFILE FOUND FOR CONTROLLER '%1$s', USER-FRIENDLY NAMES WON'T WORK!",
+					getName().toUpperCase());
 
-		// dPadButton initialization. Starting at 0.
-		for (int i = 0; i < this.getPOVCount(); i++) {
-			buttons.put("dPad" + i, buttonFromPOV(this, i));
-			for (int j = 0; j <= 315; j += 45)
-				buttons.put("dPad" + i + "_" + j, buttonFromPOV(this, i, j));
+			System.out.println(warning);
+			DriverStation.reportWarning(warning, false);
+			return;
 		}
 
-		// axisButton (Stick) initialization. Starting at 0.
-		for (int i = 0; i < this.getAxisCount(); i++) {
-			buttons.put("Stick" + i, buttonFromAxis(this, i, 0.30, true));
-			buttons.put("Stick" + i + "_1", buttonFromAxis(this, i, 0.30, false));
-			buttons.put("Stick" + i + "_-1", buttonFromAxis(this, i, -0.30, false));
+		Iterator<Map.Entry<String, JsonNode>> fields = profile.fields();
+
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			if (field.getKey().equals("axes"))
+				continue;
+			int index = indexOf(field.getValue().asText());
+
+			if (index < 0) {
+				String error = String.format("[!] INVALID BUTTON '%1$s' FOR NAME '%2$s' IN CONTROLLER '%3$s' PROFILE",
+						field.getValue().asText(), field.getKey(), getName().toUpperCase());
+
+				System.out.println(error);
+				DriverStation.reportError(error, false);
+				continue;
+			}
+
+			profileIndices.put(field.getKey(), index);
 		}
+
+		if (profile.hasNonNull("axes"))
+			initAxisShapers(profile.get("axes"));
+	}
+
+	/**
+	 * Creates an {@link AxisShaper} for each axis declared in the profile's "axes"
+	 * array, e.g. { "axis": 1, "deadband": 0.1, "curve": "cubic", "weight": 0.6,
+	 * "rateLimit": 4.0 }.
+	 * 
+	 * @param axesNode
+	 */
+	private void initAxisShapers(JsonNode axesNode) {
+		// Spliterate through each of the elements in the JsonNode.
+		axesNode.spliterator().forEachRemaining(json -> {
+			try {
+				int axis = json.hasNonNull("axis") ? json.get("axis").asInt(-1) : -1;
+				AxisShaper.Curve curve = json.hasNonNull("curve")
+						? AxisShaper.Curve.valueOf(json.get("curve").asText().toUpperCase())
+						: AxisShaper.Curve.LINEAR;
+				double parameter = curve == AxisShaper.Curve.EXPO ? json.path("exponent").asDouble(1.0)
+						: json.path("weight").asDouble(1.0);
+
+				setAxisShaper(axis, new AxisShaper(json.path("deadband").asDouble(0.0), curve, parameter,
+						json.path("rateLimit").asDouble(0.0)));
+			} catch (IllegalArgumentException e) {
+				String error = String.format("[!] INVALID AXIS ENTRY IN CONTROLLER '%1$s' PROFILE:\n\t%2$s",
+						getName().toUpperCase(), e.getMessage());
+
+				System.out.println(error);
+				DriverStation.reportError(error, false);
+			}
+		});
+	}
+
+	/**
+	 * Sets the {@link AxisShaper} for the given axis, or null to leave it as-is.
+	 * 
+	 * @param axis
+	 * @param shaper
+	 * @throws IllegalArgumentException if the axis is invalid.
+	 */
+	public void setAxisShaper(int axis, AxisShaper shaper) {
+		if (axis < 0 || axis >= MAX_AXES)
+			throw new IllegalArgumentException(String.format("[!] INVALID AXIS %1$d FOR CONTROLLER '%2$s'", axis,
+					getName().toUpperCase()));
+
+		shapers[axis] = shaper;
+	}
+
+	/**
+	 * Gets the given axis' value, shaped by its {@link AxisShaper} (if any) on
+	 * the last {@link #poll()}. Same as {@link #getRawAxis(int)} if never polled.
+	 * 
+	 * @param axis
+	 * @return shaped value
+	 */
+	public double getShapedAxis(int axis) {
+		if (!polled)
+			return getRawAxis(axis);
+
+		return axis >= 0 && axis < axisCount ? shapedAxes[axis] : 0.0;
+	}
+
+	/**
+	 * Gets the index in {@link #createdButtons} for the given {@link Button} name (e.g.
+	 * "Button1", "dPad0", "dPad0_90", "Stick1" or "Stick1_-1").
+	 * 
+	 * @param name
+	 * @return index (-1 if invalid)
+	 */
+	private static int indexOf(String name) {
+		try {
+			if (name.startsWith("Button"))
+				return rawIndex(Integer.parseInt(name.substring("Button".length())));
+
+			String type = name.startsWith("dPad") ? "dPad" : name.startsWith("Stick") ? "Stick" : null;
+			if (type == null)
+				return -1;
+
+			String[] parts = name.substring(type.length()).split("_", 2);
+			int axis = Integer.parseInt(parts[0]);
+
+			return parts.length > 1 ? index(type, axis, Integer.parseInt(parts[1])) : index(type, axis);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Gets the name of the {@link Button} at the given index in
+	 * {@link #createdButtons}, the inverse of {@link #indexOf(String)}.
+	 * 
+	 * @param index
+	 * @return name
+	 */
+	private static String nameOf(int index) {
+		if (index < DPAD)
+			return "Button" + (index - RAW + 1);
+		else if (index < DPAD_ANGLE)
+			return "dPad" + (index - DPAD);
+		else if (index < STICK)
+			return "dPad" + (index - DPAD_ANGLE) / 8 + "_" + (index - DPAD_ANGLE) % 8 * 45;
+
+		int axis = (index - STICK) / 3, direction = (index - STICK) % 3;
+		return "Stick" + axis + (direction == 0 ? "" : direction == 1 ? "_1" : "_-1");
+	}
+
+	/**
+	 * Gets the index in {@link #createdButtons} for the given raw button.
+	 * 
+	 * @param button (starting at 1)
+	 * @return index (-1 if invalid)
+	 */
+	private static int rawIndex(int button) {
+		return button >= 1 && button <= DPAD - RAW ? RAW + button - 1 : -1;
+	}
+
+	/**
+	 * Gets the index in {@link #createdButtons} for the given Stick or dPad.
+	 * 
+	 * @param type
+	 * @param axis
+	 * @return index (-1 if invalid)
+	 */
+	private static int index(String type, int axis) {
+		if (type.equals("dPad"))
+			return axis >= 0 && axis < MAX_POVS ? DPAD + axis : -1;
+		else if (type.equals("Stick"))
+			return axis >= 0 && axis < MAX_AXES ? STICK + axis * 3 : -1;
+
+		return -1;
+	}
+
+	/**
+	 * Gets the index in {@link #createdButtons} for the given Stick or dPad, at the given
+	 * angle (0-315, every 45 degrees) or value (1 or -1).
+	 * 
+	 * @param type
+	 * @param axis
+	 * @param angle
+	 * @return index (-1 if invalid)
+	 */
+	private static int index(String type, int axis, int angle) {
+		if (type.equals("dPad"))
+			return axis >= 0 && axis < MAX_POVS && angle >= 0 && angle <= 315 && angle % 45 == 0
+					? DPAD_ANGLE + axis * 8 + angle / 45
+					: -1;
+		else if (type.equals("Stick") && axis >= 0 && axis < MAX_AXES)
+			return angle == 1 ? STICK + axis * 3 + 1 : angle == -1 ? STICK + axis * 3 + 2 : -1;
+
+		return -1;
+	}
+
+	/**
+	 * Gets the {@link Button} at the given index in {@link #createdButtons}, creating it
+	 * if it's the first time it's asked for.
+	 * 
+	 * @param index
+	 * @return {@link Button} (null if the index is invalid)
+	 */
+	private Button getButton(int index) {
+		if (index < 0)
+			return null;
+
+		if (createdButtons[index] == null) {
+			if (index < DPAD)
+				createdButtons[index] = new JoystickButton(this, index - RAW + 1);
+			else if (index < DPAD_ANGLE)
+				createdButtons[index] = buttonFromPOV(this, index - DPAD);
+			else if (index < STICK)
+				createdButtons[index] = buttonFromPOV(this, (index - DPAD_ANGLE) / 8, (index - DPAD_ANGLE) % 8 * 45);
+			else {
+				int axis = (index - STICK) / 3, direction = (index - STICK) % 3;
+				createdButtons[index] = direction == 0 ? buttonFromAxis(this, axis, 0.30, true)
+						: buttonFromAxis(this, axis, direction == 1 ? 0.30 : -0.30, false);
+			}
+		}
+
+		return createdButtons[index];
+	}
+
+	/**
+	 * Read-only {@link Map} view of {@link #createdButtons}, backing the
+	 * deprecated {@link #buttons} field.
+	 */
+	private final class ButtonView extends AbstractMap<String, Button> {
+		@Override
+		public Button get(Object key) {
+			return key instanceof String ? getButton(indexOf((String) key)) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof String && indexOf((String) key) >= 0;
+		}
+
+		@Override
+		public Set<Entry<String, Button>> entrySet() {
+			return IntStream.range(0, BUTTON_COUNT).filter(i -> createdButtons[i] != null)
+					.mapToObj(i -> new SimpleImmutableEntry<>(nameOf(i), createdButtons[i]))
+					.collect(Collectors.toUnmodifiableSet());
+		}
+	}
+
+	/**
+	 * Gets every {@link Button} created so far.
+	 * 
+	 * @return buttons
+	 */
+	public Stream<Button> getButtons() {
+		return Arrays.stream(createdButtons).filter(Objects::nonNull);
+	}
+
+	/**
+	 * Takes a snapshot of every axis, button (as a bitmask) and POV of this
+	 * {@link JController}, which every {@link Button} and axis getter reads from
+	 * until the next call, and shapes every axis with an {@link AxisShaper}.
+	 * Never allocates.
+	 */
+	public void poll() {
+		DriverStation ds = DriverStation.getInstance();
+		int port = getPort();
+
+		int buttons = ds.getStickButtons(port);
+		int axisCount = Math.min(ds.getStickAxisCount(port), MAX_AXES),
+				povCount = Math.min(ds.getStickPOVCount(port), MAX_POVS);
+
+		for (int i = 0; i < axisCount; i++)
+			axes[i] = ds.getStickAxis(port, i);
+		for (int i = 0; i < povCount; i++)
+			povs[i] = ds.getStickPOV(port, i);
+
+		update(buttons, axisCount, povCount);
+	}
+
+	/**
+	 * Takes the given snapshot instead of reading it from the
+	 * {@link DriverStation}, e.g. to test edge dispatch. Axes and POVs past the
+	 * maximum are ignored.
+	 * 
+	 * @param buttons (as a bitmask, bit 0 being button 1)
+	 * @param axes
+	 * @param povs
+	 */
+	void poll(int buttons, double[] axes, int[] povs) {
+		int axisCount = Math.min(axes.length, MAX_AXES), povCount = Math.min(povs.length, MAX_POVS);
+
+		System.arraycopy(axes, 0, this.axes, 0, axisCount);
+		System.arraycopy(povs, 0, this.povs, 0, povCount);
+
+		update(buttons, axisCount, povCount);
+	}
+
+	/**
+	 * Finishes taking a snapshot whose axes and POVs have already been stored:
+	 * shapes every axis, then dispatches every edge since the previous snapshot.
+	 * 
+	 * @param buttons
+	 * @param axisCount
+	 * @param povCount
+	 */
+	private void update(int buttons, int axisCount, int povCount) {
+		boolean resized = axisCount != this.axisCount || povCount != this.povCount;
+
+		this.buttonState = buttons;
+		this.axisCount = axisCount;
+		this.povCount = povCount;
+
+		double timestamp = Clock.getInstance().getTimestamp();
+		for (int i = 0; i < axisCount; i++)
+			shapedAxes[i] = shapers[i] != null ? shapers[i].apply(axes[i], timestamp) : axes[i];
+
+		updateState();
+
+		// A controller (re)connecting would otherwise compare against inputs it
+		// never had, e.g. every centered stick would be 'pressed'.
+		if (resized)
+			System.arraycopy(state, 0, previousState, 0, STATE_WORDS);
+
+		// Nothing to compare against on the very first poll.
+		if (polled)
+			dispatchEdges(timestamp);
+
+		polled = true;
+	}
+
+	/**
+	 * Packs the state of every input in the last snapshot into {@link #state},
+	 * keeping the previous one in {@link #previousState}. Each bit matches what
+	 * the {@link Button} at that index would return.
+	 */
+	private void updateState() {
+		System.arraycopy(state, 0, previousState, 0, STATE_WORDS);
+		Arrays.fill(state, 0);
+
+		state[RAW / 64] |= (buttonState & 0xFFFFFFFFL) << (RAW % 64);
+
+		for (int i = 0; i < povCount; i++)
+			if (povs[i] > -1) {
+				setState(DPAD + i);
+				if (povs[i] % 45 == 0 && povs[i] <= 315)
+					setState(DPAD_ANGLE + i * 8 + povs[i] / 45);
+			}
+
+		for (int i = 0; i < axisCount; i++) {
+			if (Math.abs(axes[i]) < 0.30)
+				setState(STICK + i * 3);
+			if (axes[i] < 0.30)
+				setState(STICK + i * 3 + 1);
+			if (axes[i] < -0.30)
+				setState(STICK + i * 3 + 2);
+		}
+	}
+
+	/**
+	 * Sets the bit for the given input index in {@link #state}.
+	 * 
+	 * @param index
+	 */
+	private void setState(int index) {
+		state[index >>> 6] |= 1L << (index & 63);
+	}
+
+	/**
+	 * Calls every {@link EdgeHandler} registered for an {@link InputEdge} that
+	 * happened between the previous and current {@link #state}.
+	 * 
+	 * @param timestamp
+	 */
+	private void dispatchEdges(double timestamp) {
+		for (int word = 0; word < STATE_WORDS; word++) {
+			long current = state[word], previous = previousState[word];
+
+			dispatch(InputEdge.PRESSED, word, current & ~previous, timestamp);
+			dispatch(InputEdge.RELEASED, word, previous & ~current, timestamp);
+			dispatch(InputEdge.HELD, word, current & previous, timestamp);
+		}
+	}
+
+	/**
+	 * Calls every {@link EdgeHandler} registered for the given {@link InputEdge},
+	 * for each input in the given bitmask word.
+	 * 
+	 * @param edge
+	 * @param word
+	 * @param edges
+	 * @param timestamp
+	 */
+	private void dispatch(InputEdge edge, int word, long edges, double timestamp) {
+		long bits = edges & handledInputs[edge.ordinal()][word];
+
+		while (bits != 0) {
+			int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+			bits &= bits - 1;
+
+			EdgeHandler[] inputHandlers = handlers[edge.ordinal()][index];
+			for (int i = 0; i < inputHandlers.length; i++)
+				inputHandlers[i].onEdge(timestamp);
+		}
+	}
+
+	/**
+	 * Registers an {@link EdgeHandler} for the given {@link InputEdge} of a
+	 * {@link Button}, by its friendly name (or actual name, e.g. "Button1"). It's
+	 * called from {@link #poll()}, with that poll's timestamp.
+	 * 
+	 * @param buttonName
+	 * @param edge
+	 * @param handler
+	 * @throws IllegalArgumentException if no such {@link Button} exists.
+	 */
+	public void on(String buttonName, InputEdge edge, EdgeHandler handler) {
+		Integer index = profileIndices.get(buttonName);
+		on(index != null ? index : indexOf(buttonName), buttonName, edge, handler);
+	}
+
+	/**
+	 * Registers an {@link EdgeHandler} for the given {@link InputEdge} of a raw
+	 * button. It's called from {@link #poll()}, with that poll's timestamp.
+	 * 
+	 * @param button
+	 * @param edge
+	 * @param handler
+	 * @throws IllegalArgumentException if no such {@link Button} exists.
+	 */
+	public void on(int button, InputEdge edge, EdgeHandler handler) {
+		on(rawIndex(button), "Button" + button, edge, handler);
+	}
+
+	/**
+	 * Adds an {@link EdgeHandler} to the dispatch table, for the given input
+	 * index and {@link InputEdge}.
+	 * 
+	 * @param index
+	 * @param buttonName (for error messages)
+	 * @param edge
+	 * @param handler
+	 * @throws IllegalArgumentException if the index is invalid.
+	 */
+	private void on(int index, String buttonName, InputEdge edge, EdgeHandler handler) {
+		if (index < 0)
+			throw new IllegalArgumentException(String.format("[!] BUTTON '%1$s' DOES NOT EXIST IN CONTROLLER '%2$s'",
+					buttonName, getName().toUpperCase()));
+
+		EdgeHandler[] current = handlers[edge.ordinal()][index];
+		EdgeHandler[] updated = current == null ? new EdgeHandler[1] : Arrays.copyOf(current, current.length + 1);
+		updated[updated.length - 1] = handler;
+
+		handlers[edge.ordinal()][index] = updated;
+		handledInputs[edge.ordinal()][index >>> 6] |= 1L << (index & 63);
+	}
+
+	@Override
+	public double getRawAxis(int axis) {
+		if (!polled)
+			return super.getRawAxis(axis);
+
+		return axis >= 0 && axis < axisCount ? axes[axis] : 0.0;
+	}
+
+	@Override
+	public boolean getRawButton(int button) {
+		if (!polled)
+			return super.getRawButton(button);
+
+		return button > 0 && button <= 32 && (buttonState & (1 << (button - 1))) != 0;
+	}
+
+	@Override
+	public int getPOV(int pov) {
+		if (!polled)
+			return super.getPOV(pov);
+
+		return pov >= 0 && pov < povCount ? povs[pov] : -1;
+	}
+
+	/**
+	 * Gets the bitmask of every button in the last snapshot, bit 0 being button
+	 * 1.
+	 * 
+	 * @return buttonState
+	 */
+	public int getButtonState() {
+		return buttonState;
 	}
 
 	/**
@@ -83,32 +626,36 @@ public class JController extends GenericHID {
 	}
 
 	/**
-	 * Method to get {@link #leftAxis} raw value.
+	 * Method to get {@link #leftAxis} value, shaped by its {@link AxisShaper} (if
+	 * any).
 	 * 
 	 * @return {@link #leftAxis}
 	 */
 	public double getLeftAxis() {
-		return getRawAxis(leftAxis);
+		return getShapedAxis(leftAxis);
 	}
 
 	/**
-	 * Method to get {@link #rightAxis} raw value.
+	 * Method to get {@link #rightAxis} value, shaped by its {@link AxisShaper} (if
+	 * any).
 	 * 
 	 * @return {@link #rightAxis}
 	 */
 	public double getRightAxis() {
-		return getRawAxis(rightAxis);
+		return getShapedAxis(rightAxis);
 	}
 
 	/**
 	 * Method for getting a {@link Button} with a friendly name (declared in the
-	 * JSON configuration) from this {@link JController}.
+	 * JSON configuration) from this {@link JController}, or with its actual name
+	 * (e.g. "Button1") if not declared.
 	 * 
 	 * @param buttonName
 	 * @return {@link Button}
 	 */
 	public Button get(String buttonName) {
-		return buttons.get(profile.get(buttonName).asText());
+		Integer index = profileIndices.get(buttonName);
+		return getButton(index != null ? index : indexOf(buttonName));
 	}
 
 	/**
@@ -119,7 +666,7 @@ public class JController extends GenericHID {
 	 *         joystick}
 	 */
 	public Button get(int button) {
-		return buttons.get("Button" + button);
+		return getButton(rawIndex(button));
 	}
 
 	/**
@@ -132,7 +679,7 @@ public class JController extends GenericHID {
 	 *         or dPad
 	 */
 	public Button get(String type, int axis) {
-		return buttons.get(type + axis);
+		return getButton(index(type, axis));
 	}
 
 	/**
@@ -146,7 +693,7 @@ public class JController extends GenericHID {
 	 *         or dPad, for the specified angle or value
 	 */
 	public Button get(String type, int axis, int angle) {
-		return buttons.get(type + axis + "_" + angle);
+		return getButton(index(type, axis, angle));
 	}
 
 	/**
@@ -2,7 +2,12 @@ package org.usfirst.lib6647.subsystem;
 
 import java.util.HashMap;
 
+import com.fasterxml.jackson.databind.JsonNode;
+
 import org.usfirst.lib6647.subsystem.hypercomponents.HyperPIDController;
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperProfiledPIDController;
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperProfiledPIDController.GravityType;
+import org.usfirst.lib6647.util.GainSchedule;
 
 import edu.wpi.first.wpilibj.DriverStation;
 
@@ -36,8 +41,10 @@ public abstract class PIDSuperSubsystem extends SuperSubsystem {
 					double p = json.get("p").asDouble(), i = json.get("i").asDouble(), d = json.get("d").asDouble(),
 							period = json.get("period").asDouble(0.02);
 
-					// Build HyperPIDController object.
-					HyperPIDController controller = new HyperPIDController(pidName, getName(), p, i, d, period);
+					// Build HyperPIDController object, profiled if a "profile" is declared.
+					HyperPIDController controller = json.hasNonNull("profile")
+							? buildProfiledController(json, pidName, p, i, d, period)
+							: new HyperPIDController(pidName, getName(), p, i, d, period);
 
 					// Read and apply PIDSuperSubsystem configuration from JSON file.
 					if (json.get("continuous").asBoolean(false))
@@ -48,6 +55,13 @@ public abstract class PIDSuperSubsystem extends SuperSubsystem {
 					controller.setOutputRange(json.get("outputMin").asDouble(), json.get("outputMax").asDouble());
 					controller.setTolerance(json.get("tolerance").asDouble());
 
+					if (json.hasNonNull("dtLimits"))
+						controller.setDtLimits(json.get("dtLimits").get("min").asDouble(period * 0.25),
+								json.get("dtLimits").get("max").asDouble(period * 4));
+
+					if (json.hasNonNull("schedule"))
+						setGainSchedule(json, controller);
+
 					if (!json.get("fixedValues").asBoolean(true))
 						controller.outputPIDValues();
 					// ...
@@ -66,6 +80,89 @@ public abstract class PIDSuperSubsystem extends SuperSubsystem {
 		});
 	}
 
+	/**
+	 * Builds a {@link HyperProfiledPIDController} from a {@link JsonNode}'s
+	 * "profile" (maxVelocity, maxAcceleration) and optional "feedforward" (kS, kV,
+	 * kA, kG, and a "gravity" type of either "constant" or "cosine") keys.
+	 * 
+	 * @param json
+	 * @param pidName
+	 * @param p
+	 * @param i
+	 * @param d
+	 * @param period
+	 * @return HyperProfiledPIDController
+	 * @throws ComponentInitException if the profile's constraints are missing or
+	 *                                invalid.
+	 */
+	private HyperProfiledPIDController buildProfiledController(JsonNode json, String pidName, double p, double i,
+			double d, double period) throws ComponentInitException {
+		JsonNode profile = json.get("profile");
+		double maxVelocity = profile.path("maxVelocity").asDouble(0),
+				maxAcceleration = profile.path("maxAcceleration").asDouble(0);
+
+		if (maxVelocity <= 0 || maxAcceleration <= 0)
+			throw new ComponentInitException(
+					String.format("[!] INVALID OR EMPTY PROFILE CONSTRAINTS FOR PID '%1$s' IN SUBSYSTEM '%2$s'",
+							pidName, getName().toUpperCase()));
+
+		HyperProfiledPIDController controller = new HyperProfiledPIDController(pidName, getName(), p, i, d, period,
+				maxVelocity, maxAcceleration);
+
+		if (json.hasNonNull("feedforward")) {
+			JsonNode ff = json.get("feedforward");
+
+			controller.setFeedforward(ff.path("kS").asDouble(0), ff.path("kV").asDouble(0),
+					ff.path("kA").asDouble(0), ff.path("kG").asDouble(0),
+					ff.path("gravity").asText("constant").equals("cosine") ? GravityType.COSINE
+							: GravityType.CONSTANT);
+		}
+
+		return controller;
+	}
+
+	/**
+	 * Builds a {@link GainSchedule} from a {@link JsonNode}'s "schedule" key, and
+	 * sets it to the given {@link HyperPIDController}. The scheduling "variable"
+	 * can either be "measurement" (default), or "external" (given through
+	 * {@link HyperPIDController#setScheduleInput(double)}).
+	 * 
+	 * @param json
+	 * @param controller
+	 * @throws ComponentInitException if the schedule's tables are invalid.
+	 */
+	private void setGainSchedule(JsonNode json, HyperPIDController controller) throws ComponentInitException {
+		JsonNode schedule = json.get("schedule");
+
+		try {
+			controller.setGainSchedule(
+					new GainSchedule(toArray(schedule.get("breakpoints")), toArray(schedule.get("p")),
+							toArray(schedule.get("i")), toArray(schedule.get("d"))),
+					!schedule.hasNonNull("variable") || schedule.get("variable").asText().equals("measurement"));
+		} catch (IllegalArgumentException e) {
+			throw new ComponentInitException(
+					String.format("[!] INVALID GAIN SCHEDULE FOR PID '%1$s' IN SUBSYSTEM '%2$s'\n\t%3$s",
+							json.get("name").asText(), getName().toUpperCase(), e.getMessage()));
+		}
+	}
+
+	/**
+	 * Converts a JSON array into a primitive double array.
+	 * 
+	 * @param array
+	 * @return double[]
+	 */
+	private double[] toArray(JsonNode array) {
+		if (array == null || !array.isArray())
+			return new double[0];
+
+		double[] values = new double[array.size()];
+		for (int k = 0; k < values.length; k++)
+			values[k] = array.get(k).asDouble();
+
+		return values;
+	}
+
 	// This method can be overwritten in the case that constantly checking for PID
 	// updates in the Shuffleboard proves to be inconvenient.
 	@Override
@@ -83,6 +180,18 @@ public abstract class PIDSuperSubsystem extends SuperSubsystem {
 		return pidControllers.get(name);
 	}
 
+	/**
+	 * Gets specified {@link HyperProfiledPIDController}, or null if it was not
+	 * declared with a "profile".
+	 * 
+	 * @param name
+	 * @return HyperProfiledPIDController
+	 */
+	public HyperProfiledPIDController getProfiledPIDController(String name) {
+		HyperPIDController controller = pidControllers.get(name);
+		return controller instanceof HyperProfiledPIDController ? (HyperProfiledPIDController) controller : null;
+	}
+
 	/**
 	 * Sets the specified {@link HyperPIDController HyperPIDController's} setpoint
 	 * to the given value.
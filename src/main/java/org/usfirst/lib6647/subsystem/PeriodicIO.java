@@ -0,0 +1,117 @@
+package org.usfirst.lib6647.subsystem;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Double-buffered container for a {@link SuperSubsystem}'s periodic inputs and
+ * outputs. The {@link org.usfirst.lib6647.loops.Looper Looper} thread freely
+ * writes to the {@link #getWorking() working copy}, and
+ * {@link #publish() publishes} it once per tick. Readers on any other thread
+ * get a consistent copy of the last published snapshot through
+ * {@link #read(Copyable)}, without ever locking or allocating.
+ * 
+ * <p>
+ * Works as a seqlock, using {@link StampedLock}'s optimistic reads: a reader
+ * that overlaps with {@link #publish()} simply tries again, and never stalls
+ * the {@link org.usfirst.lib6647.loops.Looper Looper}.
+ * 
+ * @param <T> (type of the periodic IO object)
+ */
+public class PeriodicIO<T extends PeriodicIO.Copyable<T>> {
+	/**
+	 * Interface for periodic IO objects, which must be able to copy every field
+	 * from another instance of themselves (without allocating).
+	 * 
+	 * @param <T>
+	 */
+	public interface Copyable<T> {
+		/**
+		 * Copy every field from the given instance into this one.
+		 * 
+		 * @param source
+		 */
+		void copyFrom(T source);
+	}
+
+	/** Copy written by the {@link org.usfirst.lib6647.loops.Looper Looper}. */
+	private final T working;
+	/** Last published snapshot, only read through {@link #read(Copyable)}. */
+	private final T published;
+
+	/** Sequence lock guarding {@link #published}. */
+	private final StampedLock lock = new StampedLock();
+	/** Amount of snapshots published so far. */
+	private volatile long publishCount = 0;
+
+	/**
+	 * Constructor for {@link PeriodicIO}. Both instances must be distinct, and
+	 * never be shared with anything else.
+	 * 
+	 * @param working
+	 * @param published
+	 */
+	public PeriodicIO(T working, T published) {
+		this.working = working;
+		this.published = published;
+
+		published.copyFrom(working);
+	}
+
+	/**
+	 * Gets the working copy, only to be touched by the
+	 * {@link org.usfirst.lib6647.loops.Looper Looper} thread.
+	 * 
+	 * @return working
+	 */
+	public T getWorking() {
+		return working;
+	}
+
+	/**
+	 * Publishes the working copy as the latest snapshot. Only to be called from
+	 * the {@link org.usfirst.lib6647.loops.Looper Looper} thread.
+	 */
+	public void publish() {
+		long stamp = lock.writeLock();
+
+		try {
+			published.copyFrom(working);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+
+		publishCount++;
+	}
+
+	/**
+	 * Copies the latest published snapshot into the given instance. Can be called
+	 * from any thread, and retries until it gets a copy that wasn't torn by a
+	 * concurrent {@link #publish()}.
+	 * 
+	 * @param destination
+	 * @return destination
+	 */
+	public T read(T destination) {
+		while (true) {
+			long stamp = lock.tryOptimisticRead();
+
+			if (stamp != 0) {
+				destination.copyFrom(published);
+
+				if (lock.validate(stamp))
+					return destination;
+			}
+
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Gets the amount of snapshots published so far.
+	 * 
+	 * @return publishCount
+	 */
+	public long getPublishCount() {
+		return publishCount;
+	}
+}
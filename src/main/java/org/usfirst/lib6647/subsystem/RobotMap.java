@@ -1,27 +1,290 @@
 package org.usfirst.lib6647.subsystem;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.usfirst.lib6647.loops.BestEffortQueue;
 import org.usfirst.lib6647.loops.ILooper;
 import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopPriority;
+import org.usfirst.lib6647.loops.LoopRegisterException;
 import org.usfirst.lib6647.loops.LoopType;
+import org.usfirst.lib6647.loops.ThreadSettings;
+import org.usfirst.lib6647.loops.WorkerPool;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.TimingHistogram;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
 /**
  * Class holding instances of objects required to read values from a JSON file,
  * for {@link SuperSubsystem} usage. Also contains an ArrayList holding each of
  * the {@link SuperSubsystem subsystems}. Think of this class as a
  * {@link SuperSubsystem} manager.
+ * 
+ * <p>
+ * {@link Loop Loops} of each {@link LoopType} are sorted once, when
+ * {@link #registerLoops(ILooper, ILooper, ILooper, ILooper)} is called, so that
+ * each one runs after every {@link Loop} it depends on (see
+ * {@link Loop#getConsumes()} and {@link Loop#getRunsAfter()}). Otherwise, they
+ * keep their registration order.
+ * 
+ * <p>
+ * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops} always run
+ * after every other {@link Loop} of their {@link LoopType} (still in dependency
+ * order), and only while their {@link ILooper} has slack left.
+ * 
+ * <p>
+ * If given worker threads through {@link #setParallelism(int)}, every
+ * {@link SuperSubsystem#readPeriodicInputs()} call is fanned out to a
+ * {@link WorkerPool}, and so is every
+ * {@link SuperSubsystem#writePeriodicOutputs()} call for
+ * {@link SuperSubsystem#isParallelWriteSafe() subsystems with independent
+ * devices}. Each phase waits for every {@link SuperSubsystem} before moving on.
+ * {@link Loop#isParallelSafe() Parallel-safe} {@link Loop Loops} with no
+ * dependency on (or from) any other {@link Loop} of their {@link LoopType} are
+ * fanned out as well, while the rest run in order on the {@link ILooper
+ * ILooper's} thread. The {@link WorkerPool} only serves one thread at a time;
+ * any other thread needing it meanwhile runs everything on its own.
+ * 
+ * <p>
+ * Every {@link SuperSubsystem}'s reads and writes, and every registered
+ * {@link Loop}, are timed into rolling {@link TimingHistogram
+ * TimingHistograms}, which can be summed up in a {@link #getTopOffenders(int)
+ * top offenders report}.
+ * 
+ * <p>
+ * Sensor to command to actuator latency is measured as well: from the start of
+ * the last read phase to each {@link #markCommand() command}, and from that
+ * command to the start of the first write phase after it.
  */
 public class RobotMap implements ILooper {
 	/** Map holding every {@link SuperSubsystem}, with its name as its key. */
 	private final Map<String, SuperSubsystem> subsystems = new HashMap<>();
-	/** Lists holding every {@link Loop}. */
+	/** Lists holding every {@link Loop}, in registration order. */
 	private final List<Loop> enabledLoops = new ArrayList<>(), teleopLoops = new ArrayList<>(),
 			autoLoops = new ArrayList<>(), disabledLoops = new ArrayList<>();
+	/** Arrays holding every non-best-effort {@link Loop}, in dependency order. */
+	private Loop[] enabledOrder = new Loop[0], teleopOrder = new Loop[0], autoOrder = new Loop[0],
+			disabledOrder = new Loop[0];
+	/** {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops} of each type. */
+	private final BestEffortLoops enabledBestEffort = new BestEffortLoops(),
+			teleopBestEffort = new BestEffortLoops(), autoBestEffort = new BestEffortLoops(),
+			disabledBestEffort = new BestEffortLoops();
+	/** Parallel-safe, independent {@link Loop Loops} of each type, and the rest. */
+	private final FannedOutLoops enabledFanOut = new FannedOutLoops(), teleopFanOut = new FannedOutLoops(),
+			autoFanOut = new FannedOutLoops(), disabledFanOut = new FannedOutLoops();
+	/** {@link ILooper ILoopers} running each type of {@link Loop}. */
+	private ILooper enabledLooper, teleopLooper, autoLooper, disabledLooper;
+
+	/**
+	 * Array holding every {@link SuperSubsystem}, built on
+	 * {@link #registerLoops(ILooper, ILooper, ILooper, ILooper)}, along with
+	 * indices of those written in parallel and those written in sequence.
+	 */
+	private SuperSubsystem[] subsystemArray = new SuperSubsystem[0];
+	private int[] parallelWrites = new int[0], serialWrites = new int[0];
+	/**
+	 * Amount of values kept by every rolling {@link TimingHistogram}, and the
+	 * nominal period (in seconds) they're sized for.
+	 */
+	private static final int STATS_WINDOW = 500;
+	private static final double STATS_PERIOD = 0.02;
+	/** Time taken by each {@link SuperSubsystem}'s reads and writes. */
+	private TimingHistogram[] readTimes = new TimingHistogram[0], writeTimes = new TimingHistogram[0];
+	/** Wall time taken by the whole read and write phases. */
+	private final TimingHistogram readPhaseTimes = new TimingHistogram(STATS_PERIOD, STATS_WINDOW),
+			writePhaseTimes = new TimingHistogram(STATS_PERIOD, STATS_WINDOW);
+
+	/**
+	 * Start of the last read phase, time of the last command, and start of the
+	 * read phase that command was based on (in {@link Clock} nanoseconds).
+	 */
+	private volatile long lastRead = 0;
+	private long lastCommand = 0, lastCommandRead = 0;
+	/** Sequence lock publishing {@link #lastCommand} and {@link #lastCommandRead} as a pair. */
+	private final StampedLock commandLock = new StampedLock();
+	/** Last command already accounted for by a write phase. */
+	private long lastWrittenCommand = 0;
+	/** Sensor to command, command to actuator, and sensor to actuator latency. */
+	private final TimingHistogram sensorToCommand = new TimingHistogram(STATS_PERIOD, STATS_WINDOW),
+			commandToActuator = new TimingHistogram(STATS_PERIOD, STATS_WINDOW),
+			sensorToActuator = new TimingHistogram(STATS_PERIOD, STATS_WINDOW);
+
+	/**
+	 * {@link SuperSubsystem} that registered each {@link Loop}, and the one
+	 * currently registering its {@link Loop Loops}.
+	 */
+	private final Map<Loop, String> owners = new IdentityHashMap<>();
+	private String registering = null;
+	/** Every registered {@link Loop}, wrapped in a {@link TimedLoop}. */
+	private final List<TimedLoop> timedLoops = new ArrayList<>();
+
+	/** {@link WorkerPool} for reads, writes and parallel-safe loops, if any. */
+	private WorkerPool pool = null;
+	/** Whether a thread is currently using the {@link #pool}. */
+	private final AtomicBoolean poolBusy = new AtomicBoolean(false);
+	/** Tasks run by the {@link WorkerPool} for each read and parallel write. */
+	private final IntConsumer readTask = this::readSubsystem,
+			writeTask = index -> writeSubsystem(parallelWrites[index]);
+
+	/**
+	 * Only publish every n-th call to {@link #outputToSmartDashboard()}, and the
+	 * number of calls so far.
+	 */
+	private int publishDecimation = 50, publishCalls = 0;
+
+	/**
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops} of a single
+	 * {@link LoopType}, run through their own {@link BestEffortQueue}. Each type
+	 * needs its own, since their {@link ILooper ILoopers} may run on different
+	 * threads.
+	 */
+	private static final class BestEffortLoops implements IntConsumer {
+		private final BestEffortQueue queue = new BestEffortQueue();
+		private Loop[] loops = new Loop[0];
+		private double timestamp = 0;
+
+		private void run(ILooper looper, double timestamp) {
+			this.timestamp = timestamp;
+			queue.run(loops.length, this, looper);
+		}
+
+		@Override
+		public void accept(int index) {
+			loops[index].onLoop(timestamp);
+		}
+	}
+
+	/**
+	 * {@link Loop Loops} of a single {@link LoopType}, split between those fanned
+	 * out to the {@link WorkerPool} and those run in order, on the {@link ILooper
+	 * ILooper's} thread.
+	 */
+	private static final class FannedOutLoops implements IntConsumer {
+		private Loop[] parallel = new Loop[0], serial = new Loop[0];
+		private double timestamp = 0;
+		private boolean shedding = false;
+
+		@Override
+		public void accept(int index) {
+			if (!shedding || parallel[index].getPriority() != LoopPriority.LOW)
+				parallel[index].onLoop(timestamp);
+		}
+	}
+
+	/**
+	 * Wrapper for a registered {@link Loop}, recording how long each of its
+	 * {@link Loop#onLoop(double)} calls takes.
+	 */
+	private static final class TimedLoop implements Loop {
+		private final Loop loop;
+		/** Name of the {@link Loop}, made unique within its {@link LoopType}. */
+		private final String name, owner;
+		private final TimingHistogram times = new TimingHistogram(STATS_PERIOD, STATS_WINDOW);
+
+		private TimedLoop(Loop loop, String name, String owner) {
+			this.loop = loop;
+			this.name = name;
+			this.owner = owner;
+		}
+
+		@Override
+		public void onFirstStart(double timestamp) {
+			loop.onFirstStart(timestamp);
+		}
+
+		@Override
+		public void onPrepare(double timestamp) {
+			loop.onPrepare(timestamp);
+		}
+
+		@Override
+		public void onStart(double timestamp) {
+			loop.onStart(timestamp);
+		}
+
+		@Override
+		public void onLoop(double timestamp) {
+			Clock clock = Clock.getInstance();
+			long start = clock.getNanos();
+
+			loop.onLoop(timestamp);
+			times.record(clock.getNanos() - start);
+		}
+
+		@Override
+		public void onStop(double timestamp) {
+			loop.onStop(timestamp);
+		}
+
+		@Override
+		public LoopType getType() {
+			return loop.getType();
+		}
+
+		@Override
+		public LoopPriority getPriority() {
+			return loop.getPriority();
+		}
+
+		@Override
+		public boolean isParallelSafe() {
+			return loop.isParallelSafe();
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String[] getProduces() {
+			return loop.getProduces();
+		}
+
+		@Override
+		public String[] getConsumes() {
+			return loop.getConsumes();
+		}
+
+		@Override
+		public String[] getRunsAfter() {
+			return loop.getRunsAfter();
+		}
+	}
+
+	/**
+	 * A single line of the {@link #getTopOffenders(int) top offenders report}.
+	 */
+	private static final class Offender {
+		private final String label;
+		private final double mean, max;
+		/** Whether {@link #max} is a sum of maximums, rather than a real maximum. */
+		private final boolean summed;
+
+		private Offender(String label, double mean, double max, boolean summed) {
+			this.label = label;
+			this.mean = mean;
+			this.max = max;
+			this.summed = summed;
+		}
+	}
 
 	/**
 	 * Return a {@link Stream} of every declared {@link SuperSubsystem}.
@@ -60,24 +323,45 @@ public class RobotMap implements ILooper {
 	private class EnabledLoop implements Loop {
 		@Override
 		public void onFirstStart(double timestamp) {
-			enabledLoops.forEach(loop -> loop.onFirstStart(timestamp));
+			for (Loop loop : enabledOrder)
+				loop.onFirstStart(timestamp);
+			for (Loop loop : enabledBestEffort.loops)
+				loop.onFirstStart(timestamp);
+		}
+
+		@Override
+		public void onPrepare(double timestamp) {
+			for (Loop loop : enabledOrder)
+				loop.onPrepare(timestamp);
+			for (Loop loop : enabledBestEffort.loops)
+				loop.onPrepare(timestamp);
 		}
 
 		@Override
 		public void onStart(double timestamp) {
-			enabledLoops.forEach(loop -> loop.onStart(timestamp));
+			for (Loop loop : enabledOrder)
+				loop.onStart(timestamp);
+			for (Loop loop : enabledBestEffort.loops)
+				loop.onStart(timestamp);
 		}
 
 		@Override
 		public void onLoop(double timestamp) {
-			subsystems.values().forEach(SuperSubsystem::readPeriodicInputs);
-			enabledLoops.forEach(loop -> loop.onLoop(timestamp));
-			subsystems.values().forEach(SuperSubsystem::writePeriodicOutputs);
+			readInputs();
+			runLoops(enabledOrder, enabledFanOut, enabledLooper, timestamp);
+			publishPeriodicIO();
+			writeOutputs();
+
+			// Best-effort loops never delay the actuator writes.
+			enabledBestEffort.run(enabledLooper, timestamp);
 		}
 
 		@Override
 		public void onStop(double timestamp) {
-			enabledLoops.forEach(loop -> loop.onStop(timestamp));
+			for (Loop loop : enabledOrder)
+				loop.onStop(timestamp);
+			for (Loop loop : enabledBestEffort.loops)
+				loop.onStop(timestamp);
 		}
 
 		@Override
@@ -93,22 +377,40 @@ public class RobotMap implements ILooper {
 	private class TeleopLoop implements Loop {
 		@Override
 		public void onFirstStart(double timestamp) {
-			teleopLoops.forEach(loop -> loop.onFirstStart(timestamp));
+			for (Loop loop : teleopOrder)
+				loop.onFirstStart(timestamp);
+			for (Loop loop : teleopBestEffort.loops)
+				loop.onFirstStart(timestamp);
+		}
+
+		@Override
+		public void onPrepare(double timestamp) {
+			for (Loop loop : teleopOrder)
+				loop.onPrepare(timestamp);
+			for (Loop loop : teleopBestEffort.loops)
+				loop.onPrepare(timestamp);
 		}
 
 		@Override
 		public void onStart(double timestamp) {
-			teleopLoops.forEach(loop -> loop.onStart(timestamp));
+			for (Loop loop : teleopOrder)
+				loop.onStart(timestamp);
+			for (Loop loop : teleopBestEffort.loops)
+				loop.onStart(timestamp);
 		}
 
 		@Override
 		public void onLoop(double timestamp) {
-			teleopLoops.forEach(loop -> loop.onLoop(timestamp));
+			runLoops(teleopOrder, teleopFanOut, teleopLooper, timestamp);
+			teleopBestEffort.run(teleopLooper, timestamp);
 		}
 
 		@Override
 		public void onStop(double timestamp) {
-			teleopLoops.forEach(loop -> loop.onStop(timestamp));
+			for (Loop loop : teleopOrder)
+				loop.onStop(timestamp);
+			for (Loop loop : teleopBestEffort.loops)
+				loop.onStop(timestamp);
 		}
 
 		@Override
@@ -124,22 +426,40 @@ public class RobotMap implements ILooper {
 	private class AutoLoop implements Loop {
 		@Override
 		public void onFirstStart(double timestamp) {
-			autoLoops.forEach(loop -> loop.onFirstStart(timestamp));
+			for (Loop loop : autoOrder)
+				loop.onFirstStart(timestamp);
+			for (Loop loop : autoBestEffort.loops)
+				loop.onFirstStart(timestamp);
+		}
+
+		@Override
+		public void onPrepare(double timestamp) {
+			for (Loop loop : autoOrder)
+				loop.onPrepare(timestamp);
+			for (Loop loop : autoBestEffort.loops)
+				loop.onPrepare(timestamp);
 		}
 
 		@Override
 		public void onStart(double timestamp) {
-			autoLoops.forEach(loop -> loop.onStart(timestamp));
+			for (Loop loop : autoOrder)
+				loop.onStart(timestamp);
+			for (Loop loop : autoBestEffort.loops)
+				loop.onStart(timestamp);
 		}
 
 		@Override
 		public void onLoop(double timestamp) {
-			autoLoops.forEach(loop -> loop.onLoop(timestamp));
+			runLoops(autoOrder, autoFanOut, autoLooper, timestamp);
+			autoBestEffort.run(autoLooper, timestamp);
 		}
 
 		@Override
 		public void onStop(double timestamp) {
-			autoLoops.forEach(loop -> loop.onStop(timestamp));
+			for (Loop loop : autoOrder)
+				loop.onStop(timestamp);
+			for (Loop loop : autoBestEffort.loops)
+				loop.onStop(timestamp);
 		}
 
 		@Override
@@ -155,24 +475,45 @@ public class RobotMap implements ILooper {
 	private class DisabledLoop implements Loop {
 		@Override
 		public void onFirstStart(double timestamp) {
-			disabledLoops.forEach(loop -> loop.onFirstStart(timestamp));
+			for (Loop loop : disabledOrder)
+				loop.onFirstStart(timestamp);
+			for (Loop loop : disabledBestEffort.loops)
+				loop.onFirstStart(timestamp);
+		}
+
+		@Override
+		public void onPrepare(double timestamp) {
+			for (Loop loop : disabledOrder)
+				loop.onPrepare(timestamp);
+			for (Loop loop : disabledBestEffort.loops)
+				loop.onPrepare(timestamp);
 		}
 
 		@Override
 		public void onStart(double timestamp) {
-			disabledLoops.forEach(loop -> loop.onStart(timestamp));
+			for (Loop loop : disabledOrder)
+				loop.onStart(timestamp);
+			for (Loop loop : disabledBestEffort.loops)
+				loop.onStart(timestamp);
 		}
 
 		@Override
 		public void onLoop(double timestamp) {
-			subsystems.values().forEach(SuperSubsystem::readPeriodicInputs);
-			disabledLoops.forEach(loop -> loop.onLoop(timestamp));
-			subsystems.values().forEach(SuperSubsystem::writePeriodicOutputs);
+			readInputs();
+			runLoops(disabledOrder, disabledFanOut, disabledLooper, timestamp);
+			publishPeriodicIO();
+			writeOutputs();
+
+			// Best-effort loops never delay the actuator writes.
+			disabledBestEffort.run(disabledLooper, timestamp);
 		}
 
 		@Override
 		public void onStop(double timestamp) {
-			disabledLoops.forEach(loop -> loop.onStop(timestamp));
+			for (Loop loop : disabledOrder)
+				loop.onStop(timestamp);
+			for (Loop loop : disabledBestEffort.loops)
+				loop.onStop(timestamp);
 		}
 
 		@Override
@@ -182,25 +523,791 @@ public class RobotMap implements ILooper {
 	}
 
 	/**
-	 * Registers {@link Loop loops} for every {@link SuperSubsystem}.
+	 * Runs each given {@link Loop}, skipping {@link LoopPriority#LOW LOW} priority
+	 * ones if the {@link ILooper} running them is currently shedding. If the
+	 * {@link WorkerPool} is free, parallel-safe, independent ones are fanned out
+	 * to it while the rest run in order on this thread.
+	 * 
+	 * @param loops
+	 * @param fanOut
+	 * @param looper
+	 * @param timestamp
+	 */
+	private void runLoops(Loop[] loops, FannedOutLoops fanOut, ILooper looper, double timestamp) {
+		boolean shedding = looper.isShedding();
+
+		WorkerPool workers = fanOut.parallel.length > 0 ? claimPool() : null;
+		if (workers == null) {
+			for (int i = 0; i < loops.length; i++)
+				if (!shedding || loops[i].getPriority() != LoopPriority.LOW)
+					loops[i].onLoop(timestamp);
+			return;
+		}
+
+		try {
+			fanOut.timestamp = timestamp;
+			fanOut.shedding = shedding;
+			workers.start(fanOut.parallel.length, fanOut);
+
+			Loop[] serial = fanOut.serial;
+			for (int i = 0; i < serial.length; i++)
+				if (!shedding || serial[i].getPriority() != LoopPriority.LOW)
+					serial[i].onLoop(timestamp);
+		} finally {
+			workers.join();
+			poolBusy.set(false);
+		}
+	}
+
+	/**
+	 * Claims the {@link WorkerPool} for the current thread, unless there's none,
+	 * the {@link Clock} is virtual, or another thread is using it. Must be released
+	 * by setting {@link #poolBusy} back to false.
+	 * 
+	 * @return workers (null if it can't be used)
+	 */
+	private WorkerPool claimPool() {
+		WorkerPool workers = Clock.getInstance().isVirtual() ? null : pool;
+		return workers != null && poolBusy.compareAndSet(false, true) ? workers : null;
+	}
+
+	/**
+	 * Calls {@link SuperSubsystem#readPeriodicInputs()} on every
+	 * {@link SuperSubsystem}, in parallel if there's a {@link WorkerPool}.
+	 */
+	private void readInputs() {
+		Clock clock = Clock.getInstance();
+		long start = clock.getNanos();
+		lastRead = start;
+
+		WorkerPool workers = claimPool();
+		if (workers != null) {
+			try {
+				workers.start(subsystemArray.length, readTask);
+			} finally {
+				workers.join();
+				poolBusy.set(false);
+			}
+		} else
+			for (int i = 0; i < subsystemArray.length; i++)
+				readSubsystem(i);
+
+		readPhaseTimes.record(clock.getNanos() - start);
+	}
+
+	/**
+	 * Publishes every {@link SuperSubsystem}'s {@link PeriodicIO} snapshot, for
+	 * other threads to read.
+	 */
+	private void publishPeriodicIO() {
+		for (int i = 0; i < subsystemArray.length; i++)
+			subsystemArray[i].publishPeriodicIO();
+	}
+
+	/**
+	 * Calls {@link SuperSubsystem#writePeriodicOutputs()} on every
+	 * {@link SuperSubsystem}. If there's a {@link WorkerPool}, parallel-safe ones
+	 * are fanned out to it while the rest are written on this thread.
+	 */
+	private void writeOutputs() {
+		Clock clock = Clock.getInstance();
+		long start = clock.getNanos();
+
+		long command, commandRead;
+		while (true) {
+			long stamp = commandLock.tryOptimisticRead();
+
+			if (stamp != 0) {
+				command = lastCommand;
+				commandRead = lastCommandRead;
+
+				if (commandLock.validate(stamp))
+					break;
+			}
+
+			Thread.onSpinWait();
+		}
+
+		if (command != lastWrittenCommand) {
+			commandToActuator.record(start - command);
+			sensorToActuator.record(start - commandRead);
+			lastWrittenCommand = command;
+		}
+
+		WorkerPool workers = claimPool();
+		if (workers != null) {
+			try {
+				workers.start(parallelWrites.length, writeTask);
+
+				for (int i = 0; i < serialWrites.length; i++)
+					writeSubsystem(serialWrites[i]);
+			} finally {
+				workers.join();
+				poolBusy.set(false);
+			}
+		} else
+			for (int i = 0; i < subsystemArray.length; i++)
+				writeSubsystem(i);
+
+		writePhaseTimes.record(clock.getNanos() - start);
+	}
+
+	/**
+	 * Reads a single {@link SuperSubsystem}'s inputs, and records its duration.
+	 * 
+	 * @param index
+	 */
+	private void readSubsystem(int index) {
+		Clock clock = Clock.getInstance();
+		long start = clock.getNanos();
+
+		subsystemArray[index].readPeriodicInputs();
+		readTimes[index].record(clock.getNanos() - start);
+	}
+
+	/**
+	 * Writes a single {@link SuperSubsystem}'s outputs, and records its duration.
+	 * 
+	 * @param index
+	 */
+	private void writeSubsystem(int index) {
+		Clock clock = Clock.getInstance();
+		long start = clock.getNanos();
+
+		subsystemArray[index].writePeriodicOutputs();
+		writeTimes[index].record(clock.getNanos() - start);
+	}
+
+	/**
+	 * Sorts the given {@link Loop Loops} so that each one runs after every
+	 * {@link Loop} producing a value it consumes, and every {@link Loop} it's
+	 * declared to run after. {@link Loop Loops} with no dependency between them
+	 * keep their registration order.
+	 * 
+	 * <p>
+	 * Unnamed {@link Loop Loops}, dependencies on a name shared by several
+	 * {@link Loop Loops}, and dependency cycles are described in the given list of
+	 * errors. Each cycle is broken by running its earliest registered
+	 * {@link Loop} regardless of the other {@link Loop Loops} in the cycle, but
+	 * still after everything else it depends on.
+	 * 
+	 * @param loops
+	 * @param type
+	 * @param errors
+	 * @return sorted
+	 */
+	private static Loop[] sortLoops(List<Loop> loops, LoopType type, List<String> errors) {
+		int size = loops.size();
+
+		// Index every Loop by name, and by each value it produces.
+		Map<String, List<Integer>> names = new HashMap<>(), producers = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			String name = loops.get(i).getName();
+			if (name == null || name.isEmpty())
+				errors.add(String.format("[!] UNNAMED %1$s LOOP (%2$s), EVERY LOOP MUST HAVE A NAME.", type,
+						loops.get(i).getClass().getName()));
+			else
+				names.computeIfAbsent(name, k -> new ArrayList<>()).add(i);
+
+			for (String product : loops.get(i).getProduces())
+				producers.computeIfAbsent(product, k -> new ArrayList<>()).add(i);
+		}
+
+		// Build edges from each dependency to its dependents.
+		List<List<Integer>> dependents = new ArrayList<>();
+		int[] inDegree = new int[size];
+		for (int i = 0; i < size; i++)
+			dependents.add(new ArrayList<>());
+
+		for (int i = 0; i < size; i++) {
+			Loop loop = loops.get(i);
+
+			for (String after : loop.getRunsAfter()) {
+				if (!names.containsKey(after)) {
+					String warning = String.format("[!] LOOP '%1$s' RUNS AFTER UNKNOWN %2$s LOOP '%3$s', IGNORING.",
+							loop.getName().toUpperCase(), type, after);
+
+					System.out.println(warning);
+					DriverStation.reportWarning(warning, false);
+					continue;
+				} else if (names.get(after).size() > 1)
+					errors.add(String.format("[!] LOOP '%1$s' RUNS AFTER %2$s LOOP '%3$s', A NAME SHARED BY %4$d LOOPS.",
+							loop.getName().toUpperCase(), type, after.toUpperCase(), names.get(after).size()));
+
+				for (int dependency : names.get(after))
+					if (dependency != i && !dependents.get(dependency).contains(i)) {
+						dependents.get(dependency).add(i);
+						inDegree[i]++;
+					}
+			}
+
+			for (String consumed : loop.getConsumes())
+				for (int dependency : producers.getOrDefault(consumed, List.of()))
+					if (dependency != i && !dependents.get(dependency).contains(i)) {
+						dependents.get(dependency).add(i);
+						inDegree[i]++;
+					}
+		}
+
+		// Kahn's algorithm, always picking the earliest registered Loop available.
+		PriorityQueue<Integer> ready = new PriorityQueue<>();
+		for (int i = 0; i < size; i++)
+			if (inDegree[i] == 0)
+				ready.add(i);
+
+		Loop[] sorted = new Loop[size];
+		boolean[] placed = new boolean[size], reported = new boolean[size];
+		int count = 0;
+		while (count < size) {
+			if (ready.isEmpty()) {
+				List<Integer> cycle = findCycle(dependents, placed);
+
+				if (cycle.stream().noneMatch(i -> reported[i])) {
+					errors.add(String.format("[!] DEPENDENCY CYCLE BETWEEN %1$s LOOPS: %2$s.", type,
+							cycle.stream().map(i -> "'" + loops.get(i).getName() + "'")
+									.collect(Collectors.joining(", ")).toUpperCase()));
+					cycle.forEach(i -> reported[i] = true);
+				}
+
+				// Only waits on Loops within the cycle are dropped.
+				int forced = cycle.get(0);
+				inDegree[forced] = 0;
+				ready.add(forced);
+			}
+
+			int current = ready.poll();
+			placed[current] = true;
+			sorted[count++] = loops.get(current);
+
+			for (int dependent : dependents.get(current))
+				if (--inDegree[dependent] == 0)
+					ready.add(dependent);
+		}
+
+		return sorted;
+	}
+
+	/**
+	 * Finds the dependency cycle that has to be broken first among the
+	 * {@link Loop Loops} not yet placed, none of which can be placed anymore: the
+	 * earliest registered group of {@link Loop Loops} that all depend on each
+	 * other, and on no other {@link Loop} left.
+	 * 
+	 * @param dependents
+	 * @param placed
+	 * @return cycle (in registration order)
+	 */
+	private static List<Integer> findCycle(List<List<Integer>> dependents, boolean[] placed) {
+		int size = placed.length;
+
+		// Every Loop left reachable from each Loop left.
+		boolean[][] reach = new boolean[size][];
+		for (int i = 0; i < size; i++)
+			if (!placed[i]) {
+				reach[i] = new boolean[size];
+
+				Deque<Integer> stack = new ArrayDeque<>(List.of(i));
+				while (!stack.isEmpty())
+					for (int next : dependents.get(stack.pop()))
+						if (!placed[next] && !reach[i][next]) {
+							reach[i][next] = true;
+							stack.push(next);
+						}
+			}
+
+		// Only a cycle no other Loop left leads into can be broken on its own.
+		for (int i = 0; i < size; i++) {
+			if (placed[i] || !reach[i][i])
+				continue;
+
+			final int start = i;
+			boolean entered = IntStream.range(0, size)
+					.anyMatch(j -> !placed[j] && reach[j][start] && !reach[start][j]);
+
+			if (!entered)
+				return IntStream.range(0, size).filter(j -> !placed[j] && reach[start][j] && reach[j][start])
+						.boxed().collect(Collectors.toList());
+		}
+
+		// Can't happen, every Loop left waits on another one left.
+		throw new IllegalStateException("[!] NO DEPENDENCY CYCLE FOUND BETWEEN UNSORTED LOOPS");
+	}
+
+	/**
+	 * Wraps each given {@link Loop} in a {@link TimedLoop}, in the same order.
+	 * {@link Loop Loops} sharing a name get an index appended to it (e.g.
+	 * "intake", "intake_2"), so that their timings are told apart.
+	 * 
+	 * @param loops
+	 * @return timed
+	 */
+	private Loop[] timeLoops(Loop[] loops) {
+		Loop[] timed = new Loop[loops.length];
+		Map<String, Integer> seen = new HashMap<>();
+
+		for (int i = 0; i < loops.length; i++) {
+			String name = loops[i].getName();
+			int index = seen.merge(name, 1, Integer::sum);
+
+			TimedLoop loop = new TimedLoop(loops[i], index > 1 ? name + "_" + index : name, owners.get(loops[i]));
+
+			timedLoops.add(loop);
+			timed[i] = loop;
+		}
+
+		return timed;
+	}
+
+	/**
+	 * Keeps only the {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop
+	 * Loops}, or only the rest, in the same order.
+	 * 
+	 * @param loops
+	 * @param bestEffort
+	 * @return filtered
+	 */
+	private static Loop[] filterLoops(Loop[] loops, boolean bestEffort) {
+		return Arrays.stream(loops).filter(loop -> (loop.getPriority() == LoopPriority.BEST_EFFORT) == bestEffort)
+				.toArray(Loop[]::new);
+	}
+
+	/**
+	 * Splits the given {@link Loop Loops} between those that can be fanned out to
+	 * the {@link WorkerPool} (parallel-safe, and independent from every other one)
+	 * and the rest, keeping their order.
+	 * 
+	 * @param loops
+	 * @param fanOut
+	 */
+	private static void splitLoops(Loop[] loops, FannedOutLoops fanOut) {
+		fanOut.parallel = Arrays.stream(loops).filter(loop -> loop.isParallelSafe() && isIndependent(loop, loops))
+				.toArray(Loop[]::new);
+		fanOut.serial = Arrays.stream(loops).filter(loop -> !Arrays.asList(fanOut.parallel).contains(loop))
+				.toArray(Loop[]::new);
+	}
+
+	/**
+	 * Whether the given {@link Loop} neither depends on any of the other given
+	 * {@link Loop Loops}, nor has any of them depending on it.
+	 * 
+	 * @param loop
+	 * @param loops
+	 * @return independent
+	 */
+	private static boolean isIndependent(Loop loop, Loop[] loops) {
+		if (loop.getRunsAfter().length > 0 || loop.getConsumes().length > 0)
+			return false;
+
+		List<String> produces = Arrays.asList(loop.getProduces());
+		for (Loop other : loops)
+			if (other != loop && (Arrays.asList(other.getRunsAfter()).contains(loop.getName())
+					|| Arrays.stream(other.getConsumes()).anyMatch(produces::contains)))
+				return false;
+
+		return true;
+	}
+
+	/**
+	 * Gets the {@link BestEffortQueue} for the given {@link LoopType}'s
+	 * {@link LoopPriority#BEST_EFFORT BEST_EFFORT} {@link Loop Loops}, e.g. for its
+	 * deferral stats.
+	 * 
+	 * @param type
+	 * @return bestEffortQueue
+	 */
+	public BestEffortQueue getBestEffortQueue(LoopType type) {
+		switch (type) {
+		case TELEOP:
+			return teleopBestEffort.queue;
+		case AUTO:
+			return autoBestEffort.queue;
+		case DISABLED:
+			return disabledBestEffort.queue;
+		default:
+			return enabledBestEffort.queue;
+		}
+	}
+
+	/**
+	 * Registers {@link Loop loops} for every {@link SuperSubsystem}, and sorts them
+	 * by their dependencies. Nothing is registered to the {@link ILooper ILoopers}
+	 * if any {@link Loop Loops} can't be sorted.
+	 * 
+	 * @param enabledLooper
+	 * @param teleopLooper
+	 * @param autoLooper
+	 * @param disabledLooper
+	 * @throws LoopRegisterException if there's a dependency cycle, an unnamed
+	 *                               {@link Loop}, or a dependency on a name
+	 *                               shared by several {@link Loop Loops}.
+	 */
+	public void registerLoops(ILooper enabledLooper, ILooper teleopLooper, ILooper autoLooper,
+			ILooper disabledLooper) {
+		String error = register(enabledLooper, teleopLooper, autoLooper, disabledLooper, true);
+		if (error != null)
+			throw new LoopRegisterException(error);
+	}
+
+	/**
+	 * Registers {@link Loop loops} for every {@link SuperSubsystem}, and sorts them
+	 * by their dependencies. Any error that would make
+	 * {@link #registerLoops(ILooper, ILooper, ILooper, ILooper)} throw is reported
+	 * to the DriverStation instead, and every dependency cycle is broken by
+	 * ignoring the offending dependencies, so that every {@link Loop} still runs.
+	 * Meant for debugging only, since {@link Loop Loops} may run out of order.
 	 * 
 	 * @param enabledLooper
 	 * @param teleopLooper
 	 * @param autoLooper
 	 * @param disabledLooper
 	 */
-	public void registerLoops(ILooper enabledLooper, ILooper teleopLooper, ILooper autoLooper, ILooper disabledLooper) {
-		subsystems.values().forEach(s -> s.registerLoops(this));
+	public void registerLoopsBreakingCycles(ILooper enabledLooper, ILooper teleopLooper, ILooper autoLooper,
+			ILooper disabledLooper) {
+		register(enabledLooper, teleopLooper, autoLooper, disabledLooper, false);
+	}
+
+	/**
+	 * Registers {@link Loop loops} for every {@link SuperSubsystem}, and sorts them
+	 * by their dependencies. If strict, nothing is registered to the
+	 * {@link ILooper ILoopers} when any {@link Loop} can't be sorted; otherwise,
+	 * every error is reported and every cycle is broken.
+	 * 
+	 * @param enabledLooper
+	 * @param teleopLooper
+	 * @param autoLooper
+	 * @param disabledLooper
+	 * @param strict
+	 * @return error (null if every {@link Loop} was registered)
+	 */
+	private String register(ILooper enabledLooper, ILooper teleopLooper, ILooper autoLooper, ILooper disabledLooper,
+			boolean strict) {
+		this.enabledLooper = enabledLooper;
+		this.teleopLooper = teleopLooper;
+		this.autoLooper = autoLooper;
+		this.disabledLooper = disabledLooper;
+
+		subsystemArray = subsystems.values().toArray(new SuperSubsystem[0]);
+		parallelWrites = IntStream.range(0, subsystemArray.length).filter(i -> subsystemArray[i].isParallelWriteSafe())
+				.toArray();
+		serialWrites = IntStream.range(0, subsystemArray.length).filter(i -> !subsystemArray[i].isParallelWriteSafe())
+				.toArray();
+
+		readTimes = Stream.generate(() -> new TimingHistogram(STATS_PERIOD, STATS_WINDOW))
+				.limit(subsystemArray.length).toArray(TimingHistogram[]::new);
+		writeTimes = Stream.generate(() -> new TimingHistogram(STATS_PERIOD, STATS_WINDOW))
+				.limit(subsystemArray.length).toArray(TimingHistogram[]::new);
+
+		for (SuperSubsystem subsystem : subsystemArray) {
+			registering = subsystem.getName();
+			subsystem.registerLoops(this);
+		}
+		registering = null;
+
+		List<String> errors = new ArrayList<>();
+		Loop[] enabledSorted = sortLoops(enabledLoops, LoopType.ENABLED, errors),
+				teleopSorted = sortLoops(teleopLoops, LoopType.TELEOP, errors),
+				autoSorted = sortLoops(autoLoops, LoopType.AUTO, errors),
+				disabledSorted = sortLoops(disabledLoops, LoopType.DISABLED, errors);
+
+		if (!errors.isEmpty()) {
+			String error = String.join("\n", errors);
+			if (strict)
+				return error;
+
+			error += "\n\tIGNORING THE OFFENDING DEPENDENCIES.";
+			System.out.println(error);
+			DriverStation.reportError(error, false);
+		}
+
+		enabledSorted = timeLoops(enabledSorted);
+		teleopSorted = timeLoops(teleopSorted);
+		autoSorted = timeLoops(autoSorted);
+		disabledSorted = timeLoops(disabledSorted);
+
+		enabledOrder = filterLoops(enabledSorted, false);
+		teleopOrder = filterLoops(teleopSorted, false);
+		autoOrder = filterLoops(autoSorted, false);
+		disabledOrder = filterLoops(disabledSorted, false);
+
+		splitLoops(enabledOrder, enabledFanOut);
+		splitLoops(teleopOrder, teleopFanOut);
+		splitLoops(autoOrder, autoFanOut);
+		splitLoops(disabledOrder, disabledFanOut);
+
+		enabledBestEffort.loops = filterLoops(enabledSorted, true);
+		teleopBestEffort.loops = filterLoops(teleopSorted, true);
+		autoBestEffort.loops = filterLoops(autoSorted, true);
+		disabledBestEffort.loops = filterLoops(disabledSorted, true);
 
 		enabledLooper.register(new EnabledLoop());
 		teleopLooper.register(new TeleopLoop());
 		autoLooper.register(new AutoLoop());
 		disabledLooper.register(new DisabledLoop());
+
+		return null;
+	}
+
+	/**
+	 * Sets the amount of worker threads for running every
+	 * {@link SuperSubsystem}'s reads (and parallel-safe writes and {@link Loop
+	 * Loops}), 0 to run them all in sequence (default). Should be called before
+	 * any {@link Loop} starts.
+	 * 
+	 * @param workers
+	 */
+	public void setParallelism(int workers) {
+		setParallelism(workers, null);
+	}
+
+	/**
+	 * Sets the amount of worker threads for running every
+	 * {@link SuperSubsystem}'s reads (and parallel-safe writes and {@link Loop
+	 * Loops}), 0 to run them all in sequence (default), with the given {@link ThreadSettings}. These
+	 * should match those of the thread running the enabled and disabled
+	 * {@link Loop Loops} (e.g. the {@link org.usfirst.lib6647.loops.LoopScheduler
+	 * LoopScheduler}'s), so that it never waits on lower priority workers. Should
+	 * be called before any {@link Loop} starts.
+	 * 
+	 * @param workers
+	 * @param threadSettings (null to leave them as-is)
+	 */
+	public void setParallelism(int workers, ThreadSettings threadSettings) {
+		if (pool != null)
+			pool.shutdown();
+
+		pool = workers > 0 ? new WorkerPool("RobotMap-io", workers, threadSettings) : null;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the time taken by the given
+	 * {@link SuperSubsystem}'s reads.
+	 * 
+	 * @param name
+	 * @return readTimes (null if not found)
+	 */
+	public TimingHistogram getReadTimes(String name) {
+		for (int i = 0; i < subsystemArray.length; i++)
+			if (subsystemArray[i].getName().equals(name))
+				return readTimes[i];
+
+		return null;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the time taken by the given
+	 * {@link SuperSubsystem}'s writes.
+	 * 
+	 * @param name
+	 * @return writeTimes (null if not found)
+	 */
+	public TimingHistogram getWriteTimes(String name) {
+		for (int i = 0; i < subsystemArray.length; i++)
+			if (subsystemArray[i].getName().equals(name))
+				return writeTimes[i];
+
+		return null;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the wall time taken by the
+	 * whole read phase.
+	 * 
+	 * @return readPhaseTimes
+	 */
+	public TimingHistogram getReadPhaseTimes() {
+		return readPhaseTimes;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the wall time taken by the
+	 * whole write phase.
+	 * 
+	 * @return writePhaseTimes
+	 */
+	public TimingHistogram getWritePhaseTimes() {
+		return writePhaseTimes;
+	}
+
+	/**
+	 * Marks that a new command (e.g. every Command's output for this cycle) has
+	 * just been computed from the latest inputs. Should be called once per cycle
+	 * from the thread computing commands, e.g. at the end of the main loop.
+	 */
+	public void markCommand() {
+		long now = Clock.getInstance().getNanos();
+		long read = lastRead;
+		if (read == 0)
+			return;
+
+		sensorToCommand.record(now - read);
+
+		long stamp = commandLock.writeLock();
+		try {
+			lastCommandRead = read;
+			lastCommand = now;
+		} finally {
+			commandLock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the time from the start of a
+	 * read phase to the next {@link #markCommand() command}.
+	 * 
+	 * @return sensorToCommand
+	 */
+	public TimingHistogram getSensorToCommand() {
+		return sensorToCommand;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the time from a
+	 * {@link #markCommand() command} to the start of the next write phase.
+	 * 
+	 * @return commandToActuator
+	 */
+	public TimingHistogram getCommandToActuator() {
+		return commandToActuator;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the time from the start of a
+	 * read phase to the start of the first write phase after a
+	 * {@link #markCommand() command} based on it.
+	 * 
+	 * @return sensorToActuator
+	 */
+	public TimingHistogram getSensorToActuator() {
+		return sensorToActuator;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the time taken by the given
+	 * {@link Loop}'s {@link Loop#onLoop(double)} calls.
+	 * 
+	 * @param type
+	 * @param name
+	 * @return loopTimes (null if not found)
+	 */
+	public TimingHistogram getLoopTimes(LoopType type, String name) {
+		for (TimedLoop loop : timedLoops)
+			if (loop.getType() == type && loop.getName().equals(name))
+				return loop.times;
+
+		return null;
+	}
+
+	/**
+	 * Builds a report of the given amount of slowest phases, by mean time over the
+	 * last few hundred ticks: each {@link SuperSubsystem}'s reads, writes and
+	 * {@link Loop Loops} (summed up, along with their maximums), and each
+	 * {@link Loop} on its own.
+	 * 
+	 * @param count
+	 * @return report
+	 */
+	public String getTopOffenders(int count) {
+		List<Offender> offenders = new ArrayList<>();
+
+		for (int i = 0; i < subsystemArray.length; i++) {
+			String name = subsystemArray[i].getName();
+			offenders.add(new Offender(name + " reads", readTimes[i].getMean(), readTimes[i].getMax(), false));
+			offenders.add(new Offender(name + " writes", writeTimes[i].getMean(), writeTimes[i].getMax(), false));
+
+			double loopMean = 0, loopMax = 0;
+			for (TimedLoop loop : timedLoops)
+				if (name.equals(loop.owner)) {
+					loopMean += loop.times.getMean();
+					loopMax += loop.times.getMax();
+				}
+
+			// Each loop peaks on a different tick, so their maximums only add up to a bound.
+			offenders.add(new Offender(name + " loops", loopMean, loopMax, true));
+		}
+
+		for (TimedLoop loop : timedLoops)
+			offenders.add(new Offender(String.format("%1$s loop '%2$s' (%3$s)", loop.getType(), loop.getName(),
+					loop.owner != null ? loop.owner : "RobotMap"), loop.times.getMean(), loop.times.getMax(), false));
+
+		offenders.sort(Comparator.comparingDouble((Offender offender) -> offender.mean).reversed());
+
+		StringBuilder report = new StringBuilder(String.format(
+				"Top offenders (read phase %1$.3fms, write phase %2$.3fms):", readPhaseTimes.getMean() * 1e3,
+				writePhaseTimes.getMean() * 1e3));
+		for (int i = 0; i < Math.min(count, offenders.size()); i++)
+			report.append(String.format("\n\t%1$2d. %2$s: mean %3$.3fms, %4$s %5$.3fms", i + 1, offenders.get(i).label,
+					offenders.get(i).mean * 1e3, offenders.get(i).summed ? "sum of maxes" : "max",
+					offenders.get(i).max * 1e3));
+
+		return report.toString();
+	}
+
+	/**
+	 * Prints the {@link #getTopOffenders(int) top offenders report} with the
+	 * given amount of lines.
+	 * 
+	 * @param count
+	 */
+	public void printTopOffenders(int count) {
+		System.out.println(getTopOffenders(count));
+	}
+
+	/**
+	 * Sets how often {@link #outputToSmartDashboard()} actually publishes, e.g. 50
+	 * means only every 50th call.
+	 * 
+	 * @param publishDecimation
+	 */
+	public void setPublishDecimation(int publishDecimation) {
+		this.publishDecimation = Math.max(1, publishDecimation);
+	}
+
+	/**
+	 * Output read and write phase timings, and sensor to actuator latency, to
+	 * SmartDashboard, along with each
+	 * {@link SuperSubsystem}'s mean and max, and the slowest
+	 * {@link SuperSubsystem} in each phase (i.e. the critical path when run in
+	 * parallel). Only actually published every {@link #publishDecimation} calls.
+	 */
+	public void outputToSmartDashboard() {
+		if (++publishCalls < publishDecimation)
+			return;
+		publishCalls = 0;
+
+		SmartDashboard.putNumber("robotmap_read_phase", readPhaseTimes.getMean());
+		SmartDashboard.putNumber("robotmap_write_phase", writePhaseTimes.getMean());
+		SmartDashboard.putNumber("robotmap_sensor_to_command", sensorToCommand.getMean());
+		SmartDashboard.putNumber("robotmap_command_to_actuator", commandToActuator.getMean());
+		SmartDashboard.putNumber("robotmap_sensor_to_actuator", sensorToActuator.getMean());
+		SmartDashboard.putNumber("robotmap_sensor_to_actuator_max", sensorToActuator.getMax());
+
+		int slowestRead = -1, slowestWrite = -1;
+		for (int i = 0; i < subsystemArray.length; i++) {
+			String key = subsystemArray[i].getName() + "_robotmap";
+
+			SmartDashboard.putNumber(key + "_read", readTimes[i].getMean());
+			SmartDashboard.putNumber(key + "_read_max", readTimes[i].getMax());
+			SmartDashboard.putNumber(key + "_write", writeTimes[i].getMean());
+			SmartDashboard.putNumber(key + "_write_max", writeTimes[i].getMax());
+
+			if (slowestRead < 0 || readTimes[i].getMean() > readTimes[slowestRead].getMean())
+				slowestRead = i;
+			if (slowestWrite < 0 || writeTimes[i].getMean() > writeTimes[slowestWrite].getMean())
+				slowestWrite = i;
+		}
+
+		if (slowestRead >= 0) {
+			SmartDashboard.putString("robotmap_read_critical", subsystemArray[slowestRead].getName());
+			SmartDashboard.putString("robotmap_write_critical", subsystemArray[slowestWrite].getName());
+		}
 	}
 
 	@Override
 	public void register(Loop... loops) {
 		for (Loop loop : loops) {
+			if (registering != null)
+				owners.put(loop, registering);
+
 			switch (loop.getType()) {
 			case ENABLED:
 				enabledLoops.add(loop);
@@ -18,6 +18,8 @@ public abstract class SuperSubsystem implements Subsystem {
 	protected JsonNode robotMap;
 	/** Name of the {@link SuperSubsystem}. */
 	private final String name;
+	/** Optional double-buffered {@link PeriodicIO}, published every tick. */
+	private PeriodicIO<?> periodicIO = null;
 
 	/**
 	 * Constructor for {@link SuperSubsystem}.
@@ -62,6 +64,50 @@ public abstract class SuperSubsystem implements Subsystem {
 	public void registerLoops(ILooper looper) {
 	}
 
+	/**
+	 * Sets this {@link SuperSubsystem}'s {@link PeriodicIO}, whose working copy
+	 * should be filled in {@link #readPeriodicInputs()} (and by its
+	 * {@link org.usfirst.lib6647.loops.Loop Loops}). {@link RobotMap} publishes it
+	 * every enabled or disabled tick, right after that tick's
+	 * {@link org.usfirst.lib6647.loops.Loop Loops} have run.
+	 * 
+	 * @param periodicIO
+	 */
+	protected void setPeriodicIO(PeriodicIO<?> periodicIO) {
+		this.periodicIO = periodicIO;
+	}
+
+	/**
+	 * Gets this {@link SuperSubsystem}'s {@link PeriodicIO}, if any.
+	 * 
+	 * @return periodicIO
+	 */
+	public PeriodicIO<?> getPeriodicIO() {
+		return periodicIO;
+	}
+
+	/**
+	 * Publishes this {@link SuperSubsystem}'s {@link PeriodicIO} snapshot, if it
+	 * has one. Called by {@link RobotMap} on the
+	 * {@link org.usfirst.lib6647.loops.Looper Looper} thread.
+	 */
+	public void publishPeriodicIO() {
+		if (periodicIO != null)
+			periodicIO.publish();
+	}
+
+	/**
+	 * Whether {@link #writePeriodicOutputs()} only touches devices (and state)
+	 * no other {@link SuperSubsystem} does, so that it can be run at the same time
+	 * as every other {@link SuperSubsystem}'s writes. Reads are always assumed to
+	 * be independent.
+	 * 
+	 * @return parallelWriteSafe
+	 */
+	public boolean isParallelWriteSafe() {
+		return false;
+	}
+
 	public void zeroSensors() {
 	}
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package org.usfirst.lib6647.subsystem.hypercomponents;
 
+import org.usfirst.lib6647.loops.Looper;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
+import org.usfirst.lib6647.util.GainSchedule;
+import org.usfirst.lib6647.util.RunningStats;
 
 import edu.wpi.first.wpilibj.controller.PIDController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -9,6 +12,12 @@ import edu.wpi.first.wpiutil.math.MathUtil;
 /**
  * Simple wrapper for the {@link PIDController} that re-implements a couple of
  * useful features (such as output range) that were removed in the 2020 update.
+ * 
+ * <p>
+ * The PID math itself is re-implemented here (instead of delegating to
+ * {@link PIDController#calculate(double)}) so that it can also be run with the
+ * actual time elapsed between calls, via
+ * {@link #calculateAt(double, double)}.
  */
 public class HyperPIDController extends PIDController {
 	/** Names of both the PID loop, and its subsystem. */
@@ -18,6 +27,43 @@ public class HyperPIDController extends PIDController {
 	/** Whether or not the current PID values can be updated in the Shuffleboard. */
 	private boolean fixedValues = true;
 
+	/** Whether or not continuous input is enabled, and its range. */
+	private boolean continuous = false;
+	private double inputRange = 0.0;
+	/** Minimum and maximum values for the integral term (I already applied). */
+	private double minimumIntegral = -1.0, maximumIntegral = 1.0;
+	/** Position and velocity tolerance, used by {@link #atSetpoint()}. */
+	private double positionTolerance = 0.05, velocityTolerance = Double.POSITIVE_INFINITY;
+
+	/**
+	 * Current and previous errors, along with the integral term, accumulated with
+	 * the I gain of each step so that a changing (scheduled) I gain never rescales
+	 * past error.
+	 */
+	private double positionError = 0.0, velocityError = 0.0, prevError = 0.0, totalError = 0.0;
+
+	/** Timestamp of the last {@link #calculateAt(double, double)} call. */
+	private double lastTimestamp = Double.NaN;
+	/**
+	 * Minimum and maximum dt allowed for {@link #calculateAt(double, double)}, any
+	 * value outside this range is clamped.
+	 */
+	private double minDt, maxDt;
+	/** Statistics for every dt measured by {@link #calculateAt(double, double)}. */
+	private final RunningStats dtStats = new RunningStats();
+	/** Number of dt values that had to be clamped. */
+	private long clampedDts = 0;
+
+	/** Optional {@link GainSchedule}, replaces the fixed PID gains if present. */
+	private GainSchedule schedule = null;
+	/**
+	 * Whether the {@link #schedule} is keyed on the measurement itself, or on the
+	 * value given to {@link #setScheduleInput(double)}.
+	 */
+	private boolean scheduleOnMeasurement = true;
+	/** Last value given to {@link #setScheduleInput(double)}. */
+	private double scheduleInput = 0.0;
+
 	/**
 	 * HyperComponent Wrapper for a {@link PIDController}.
 	 * 
@@ -33,12 +79,253 @@ public class HyperPIDController extends PIDController {
 
 		this.name = name;
 		this.subsystemName = subsystemName;
+
+		// Clamp dt around the nominal period by default.
+		setDtLimits(period * 0.25, period * 4);
 	}
 
 	@Override
 	public double calculate(double measurement) {
-		// 'Clamps' the calculated value to the declared minimum and maximum output.
-		return MathUtil.clamp(super.calculate(measurement), outputMin, outputMax);
+		return calculate(measurement, getPeriod(), true);
+	}
+
+	/**
+	 * Calculates the next output of the {@link HyperPIDController} using the time
+	 * elapsed since the previous call, instead of its fixed period. Meant to be
+	 * called from a {@link Looper}, with the timestamp it provides. Not an
+	 * overload of calculate(), since {@link PIDController#calculate(double, double)}
+	 * already takes a setpoint as its second argument.
+	 * 
+	 * <p>
+	 * The measured dt is clamped to the {@link #setDtLimits(double, double) dt
+	 * limits}; the very first call after a {@link #reset()} uses the nominal
+	 * period instead.
+	 * 
+	 * @param measurement
+	 * @param timestamp   (in seconds)
+	 * @return output
+	 */
+	public double calculateAt(double measurement, double timestamp) {
+		double dt = timestamp - lastTimestamp;
+
+		if (Double.isNaN(dt))
+			dt = getPeriod();
+		else {
+			dtStats.add(dt);
+
+			if (dt < minDt || dt > maxDt) {
+				dt = MathUtil.clamp(dt, minDt, maxDt);
+				clampedDts++;
+			}
+		}
+
+		lastTimestamp = timestamp;
+		return calculate(measurement, dt, true);
+	}
+
+	/**
+	 * Runs the PID math for the given dt. Output is only clamped to the declared
+	 * output range if told so.
+	 * 
+	 * @param measurement
+	 * @param dt
+	 * @param clamped
+	 * @return output
+	 */
+	protected double calculate(double measurement, double dt, boolean clamped) {
+		prevError = positionError;
+		positionError = wrapError(getSetpoint() - measurement);
+		velocityError = (positionError - prevError) / dt;
+
+		double p, i, d;
+		if (schedule != null) {
+			schedule.update(scheduleOnMeasurement ? measurement : scheduleInput);
+			p = schedule.getP();
+			i = schedule.getI();
+			d = schedule.getD();
+		} else {
+			p = getP();
+			i = getI();
+			d = getD();
+		}
+
+		totalError = MathUtil.clamp(totalError + i * positionError * dt, minimumIntegral, maximumIntegral);
+
+		double output = p * positionError + totalError + d * velocityError;
+		return clamped ? clampOutput(output) : output;
+	}
+
+	/**
+	 * 'Clamps' the given value to the declared minimum and maximum output.
+	 * 
+	 * @param output
+	 * @return clamped output
+	 */
+	protected double clampOutput(double output) {
+		return MathUtil.clamp(output, outputMin, outputMax);
+	}
+
+	/**
+	 * Wraps the given error around the input range if continuous input is enabled.
+	 * 
+	 * @param error
+	 * @return error
+	 */
+	protected double wrapError(double error) {
+		if (continuous && inputRange > 0) {
+			error %= inputRange;
+			if (Math.abs(error) > inputRange / 2)
+				return error > 0 ? error - inputRange : error + inputRange;
+		}
+
+		return error;
+	}
+
+	@Override
+	public void enableContinuousInput(double minimumInput, double maximumInput) {
+		super.enableContinuousInput(minimumInput, maximumInput);
+
+		continuous = true;
+		inputRange = maximumInput - minimumInput;
+	}
+
+	@Override
+	public void disableContinuousInput() {
+		super.disableContinuousInput();
+
+		continuous = false;
+	}
+
+	@Override
+	public void setIntegratorRange(double minimumIntegral, double maximumIntegral) {
+		super.setIntegratorRange(minimumIntegral, maximumIntegral);
+
+		this.minimumIntegral = minimumIntegral;
+		this.maximumIntegral = maximumIntegral;
+	}
+
+	@Override
+	public void setTolerance(double positionTolerance) {
+		setTolerance(positionTolerance, Double.POSITIVE_INFINITY);
+	}
+
+	@Override
+	public void setTolerance(double positionTolerance, double velocityTolerance) {
+		super.setTolerance(positionTolerance, velocityTolerance);
+
+		this.positionTolerance = positionTolerance;
+		this.velocityTolerance = velocityTolerance;
+	}
+
+	@Override
+	public boolean atSetpoint() {
+		return Math.abs(positionError) < positionTolerance && Math.abs(velocityError) < velocityTolerance;
+	}
+
+	@Override
+	public double getPositionError() {
+		return positionError;
+	}
+
+	@Override
+	public double getVelocityError() {
+		return velocityError;
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+
+		prevError = 0;
+		totalError = 0;
+		lastTimestamp = Double.NaN;
+	}
+
+	/**
+	 * Sets the minimum and maximum dt allowed for
+	 * {@link #calculateAt(double, double)}. Defaults to a quarter and four times the
+	 * {@link HyperPIDController}'s period, respectively.
+	 * 
+	 * @param minDt
+	 * @param maxDt
+	 */
+	public void setDtLimits(double minDt, double maxDt) {
+		this.minDt = minDt;
+		this.maxDt = maxDt;
+	}
+
+	/**
+	 * Sets a {@link GainSchedule} to use instead of the fixed PID gains, keyed on
+	 * either the measurement itself, or on the value last given to
+	 * {@link #setScheduleInput(double)}. A null schedule goes back to the fixed
+	 * gains.
+	 * 
+	 * @param schedule
+	 * @param onMeasurement
+	 */
+	public void setGainSchedule(GainSchedule schedule, boolean onMeasurement) {
+		this.schedule = schedule;
+		this.scheduleOnMeasurement = onMeasurement;
+	}
+
+	/**
+	 * Gets the {@link GainSchedule} currently in use, if any.
+	 * 
+	 * @return schedule
+	 */
+	public GainSchedule getGainSchedule() {
+		return schedule;
+	}
+
+	/**
+	 * Sets the current value of the scheduling variable, for {@link GainSchedule
+	 * GainSchedules} not keyed on the measurement (such as load).
+	 * 
+	 * @param scheduleInput
+	 */
+	public void setScheduleInput(double scheduleInput) {
+		this.scheduleInput = scheduleInput;
+	}
+
+	/**
+	 * Gets the statistics for every dt measured by
+	 * {@link #calculateAt(double, double)}.
+	 * 
+	 * @return dtStats
+	 */
+	public RunningStats getDtStats() {
+		return dtStats;
+	}
+
+	/**
+	 * Gets the number of dt values that were outside of the
+	 * {@link #setDtLimits(double, double) dt limits}.
+	 * 
+	 * @return clampedDts
+	 */
+	public long getClampedDts() {
+		return clampedDts;
+	}
+
+	/**
+	 * Clears the {@link #dtStats jitter statistics}.
+	 */
+	public void resetDtStats() {
+		dtStats.reset();
+		clampedDts = 0;
+	}
+
+	/**
+	 * Output the {@link #dtStats jitter statistics} to SmartDashboard.
+	 */
+	public void outputDtStats() {
+		String key = subsystemName + "_" + name;
+
+		SmartDashboard.putNumber(key + "_dt_mean", dtStats.getMean());
+		SmartDashboard.putNumber(key + "_dt_stddev", dtStats.getStdDev());
+		SmartDashboard.putNumber(key + "_dt_min", dtStats.getMin());
+		SmartDashboard.putNumber(key + "_dt_max", dtStats.getMax());
+		SmartDashboard.putNumber(key + "_dt_clamped", clampedDts);
 	}
 
 	/**
@@ -59,7 +346,7 @@ public class HyperPIDController extends PIDController {
 	 * PID values can be specified in the {@link SuperSubsystem#robotMap JSON file}.
 	 */
 	public void updatePIDValues() {
-		if (fixedValues)
+		if (fixedValues || schedule != null)
 			return;
 
 		if (!SmartDashboard.getString(subsystemName + "_" + name + "P", getP() + "").equals(getP() + ""))
@@ -91,4 +378,4 @@ public class HyperPIDController extends PIDController {
 		this.outputMin = outputMin;
 		this.outputMax = outputMax;
 	}
-}
\ No newline at end of file
+}
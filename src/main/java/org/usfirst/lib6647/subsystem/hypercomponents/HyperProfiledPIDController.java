@@ -0,0 +1,310 @@
+package org.usfirst.lib6647.subsystem.hypercomponents;
+
+import org.usfirst.lib6647.loops.Looper;
+
+import edu.wpi.first.wpilibj.controller.PIDController;
+
+/**
+ * {@link HyperPIDController} that follows a trapezoidal motion profile towards
+ * its goal, instead of jumping straight to it, and adds kS/kV/kA/kG
+ * feedforward on top of the PID output.
+ * 
+ * <p>
+ * The profile is advanced by the controller's period when using
+ * {@link #calculate(double)} (i.e. from the CommandScheduler), or by the
+ * actual elapsed time when using {@link #calculateAt(double, double)} (i.e.
+ * from a {@link Looper}). Profile states are kept in primitive fields, so
+ * nothing is allocated per call.
+ * 
+ * <p>
+ * The profile starts from the first measurement it's given after being
+ * created or {@link #reset()}, and takes the shortest way around to its goal
+ * if continuous input is enabled.
+ */
+public class HyperProfiledPIDController extends HyperPIDController {
+	/** Gravity feedforward types. */
+	public enum GravityType {
+		/** kG is applied as-is (e.g. elevators). */
+		CONSTANT,
+		/** kG is scaled by the cosine of the position, in radians (e.g. arms). */
+		COSINE
+	}
+
+	/** Maximum velocity and acceleration for the motion profile. */
+	private double maxVelocity, maxAcceleration;
+	/** Feedforward gains. */
+	private double kS = 0, kV = 0, kA = 0, kG = 0;
+	/** How {@link #kG} should be applied. */
+	private GravityType gravityType = GravityType.CONSTANT;
+
+	/** Goal position and velocity. */
+	private double goalPosition = 0, goalVelocity = 0;
+	/** Goal position actually followed, wrapped around if input is continuous. */
+	private double profileGoal = 0;
+	/** Current profiled position, velocity and acceleration. */
+	private double position = 0, velocity = 0, acceleration = 0;
+	/** Whether the profiled state has been seeded from a measurement yet. */
+	private boolean seeded = false;
+
+	/**
+	 * HyperComponent Wrapper for a profiled {@link PIDController}.
+	 * 
+	 * @param name
+	 * @param subsystemName
+	 * @param p
+	 * @param i
+	 * @param d
+	 * @param period
+	 * @param maxVelocity
+	 * @param maxAcceleration
+	 */
+	public HyperProfiledPIDController(String name, String subsystemName, double p, double i, double d, double period,
+			double maxVelocity, double maxAcceleration) {
+		super(name, subsystemName, p, i, d, period);
+
+		setConstraints(maxVelocity, maxAcceleration);
+	}
+
+	@Override
+	protected double calculate(double measurement, double dt, boolean clamped) {
+		// Start from wherever the mechanism is, instead of swinging from 0.
+		if (!seeded)
+			seed(measurement, 0);
+
+		// Take the shortest way around, if continuous input is enabled.
+		profileGoal = measurement + wrapError(goalPosition - measurement);
+		position = measurement + wrapError(position - measurement);
+
+		advanceProfile(dt);
+		super.setSetpoint(position);
+
+		double output = super.calculate(measurement, dt, false) + getFeedforward();
+		return clamped ? clampOutput(output) : output;
+	}
+
+	/**
+	 * Calculates the feedforward for the current profiled state.
+	 * 
+	 * @return feedforward
+	 */
+	public double getFeedforward() {
+		double gravity = gravityType == GravityType.COSINE ? kG * Math.cos(position) : kG;
+		return kS * Math.signum(velocity) + kV * velocity + kA * acceleration + gravity;
+	}
+
+	/**
+	 * Advances the profiled state by dt, towards the goal. Same math as WPILib's
+	 * TrapezoidProfile, re-computed from the current state every call.
+	 * 
+	 * @param dt
+	 */
+	private void advanceProfile(double dt) {
+		// Work in the positive direction, flip back at the end.
+		double direction = position > profileGoal ? -1 : 1;
+		double initialPosition = position * direction, initialVelocity = velocity * direction;
+		double finalPosition = profileGoal * direction, finalVelocity = goalVelocity * direction;
+
+		if (initialVelocity > maxVelocity)
+			initialVelocity = maxVelocity;
+
+		// Distance that would have been covered accelerating from (or decelerating
+		// to) zero velocity.
+		double cutoffBegin = initialVelocity / maxAcceleration;
+		double cutoffDistBegin = cutoffBegin * cutoffBegin * maxAcceleration / 2.0;
+		double cutoffEnd = finalVelocity / maxAcceleration;
+		double cutoffDistEnd = cutoffEnd * cutoffEnd * maxAcceleration / 2.0;
+
+		double fullTrapezoidDist = cutoffDistBegin + (finalPosition - initialPosition) + cutoffDistEnd;
+		double accelerationTime = maxVelocity / maxAcceleration;
+		double fullSpeedDist = fullTrapezoidDist - accelerationTime * accelerationTime * maxAcceleration;
+
+		// Triangular profile if max velocity can't be reached.
+		if (fullSpeedDist < 0) {
+			accelerationTime = Math.sqrt(fullTrapezoidDist / maxAcceleration);
+			fullSpeedDist = 0;
+		}
+
+		double endAccel = accelerationTime - cutoffBegin;
+		double endFullSpeed = endAccel + fullSpeedDist / maxVelocity;
+		double endDeccel = endFullSpeed + accelerationTime - cutoffEnd;
+
+		double newPosition, newVelocity, newAcceleration;
+		if (dt < endAccel) {
+			newVelocity = initialVelocity + dt * maxAcceleration;
+			newPosition = initialPosition + (initialVelocity + dt * maxAcceleration / 2.0) * dt;
+			newAcceleration = maxAcceleration;
+		} else if (dt < endFullSpeed) {
+			newVelocity = maxVelocity;
+			newPosition = initialPosition + (initialVelocity + endAccel * maxAcceleration / 2.0) * endAccel
+					+ maxVelocity * (dt - endAccel);
+			newAcceleration = 0;
+		} else if (dt <= endDeccel) {
+			double timeLeft = endDeccel - dt;
+			newVelocity = finalVelocity + timeLeft * maxAcceleration;
+			newPosition = finalPosition - (finalVelocity + timeLeft * maxAcceleration / 2.0) * timeLeft;
+			newAcceleration = -maxAcceleration;
+		} else {
+			newVelocity = finalVelocity;
+			newPosition = finalPosition;
+			newAcceleration = 0;
+		}
+
+		position = newPosition * direction;
+		velocity = newVelocity * direction;
+		acceleration = newAcceleration * direction;
+	}
+
+	/**
+	 * Sets the goal position, with zero velocity. Same as
+	 * {@link #setGoal(double)}, so that {@link PIDController#calculate(double,
+	 * double)} and the PIDSuperSubsystem's setSetpoint() follow the profile.
+	 * 
+	 * @param setpoint
+	 */
+	@Override
+	public void setSetpoint(double setpoint) {
+		setGoal(setpoint);
+	}
+
+	/**
+	 * Sets the goal position, with zero velocity.
+	 * 
+	 * @param goalPosition
+	 */
+	public void setGoal(double goalPosition) {
+		setGoal(goalPosition, 0);
+	}
+
+	/**
+	 * Sets the goal position and velocity.
+	 * 
+	 * @param goalPosition
+	 * @param goalVelocity
+	 */
+	public void setGoal(double goalPosition, double goalVelocity) {
+		this.goalPosition = goalPosition;
+		this.goalVelocity = goalVelocity;
+	}
+
+	/**
+	 * Gets the goal position.
+	 * 
+	 * @return goalPosition
+	 */
+	public double getGoal() {
+		return goalPosition;
+	}
+
+	/**
+	 * Whether the profile has reached its goal, and the measurement is within
+	 * tolerance of it.
+	 * 
+	 * @return atGoal
+	 */
+	public boolean atGoal() {
+		return atSetpoint() && position == profileGoal && velocity == goalVelocity;
+	}
+
+	/**
+	 * Resets the profiled state to the given measurement (at rest), along with
+	 * the PID's accumulated error.
+	 * 
+	 * @param measurement
+	 */
+	public void reset(double measurement) {
+		reset(measurement, 0);
+	}
+
+	/**
+	 * Resets the profiled state to the given measurement and velocity, along
+	 * with the PID's accumulated error.
+	 * 
+	 * @param measurement
+	 * @param measuredVelocity
+	 */
+	public void reset(double measurement, double measuredVelocity) {
+		reset();
+		seed(measurement, measuredVelocity);
+	}
+
+	/**
+	 * Resets the PID's accumulated error; the profiled state is reset to the next
+	 * measurement given to the controller.
+	 */
+	@Override
+	public void reset() {
+		super.reset();
+
+		seeded = false;
+	}
+
+	/**
+	 * Sets the profiled state to the given measurement and velocity.
+	 * 
+	 * @param measurement
+	 * @param measuredVelocity
+	 */
+	private void seed(double measurement, double measuredVelocity) {
+		position = measurement;
+		velocity = measuredVelocity;
+		acceleration = 0;
+		super.setSetpoint(measurement);
+
+		seeded = true;
+	}
+
+	/**
+	 * Sets the maximum velocity and acceleration of the motion profile.
+	 * 
+	 * @param maxVelocity
+	 * @param maxAcceleration
+	 */
+	public void setConstraints(double maxVelocity, double maxAcceleration) {
+		this.maxVelocity = maxVelocity;
+		this.maxAcceleration = maxAcceleration;
+	}
+
+	/**
+	 * Sets the feedforward gains.
+	 * 
+	 * @param kS          static gain
+	 * @param kV          velocity gain
+	 * @param kA          acceleration gain
+	 * @param kG          gravity gain
+	 * @param gravityType
+	 */
+	public void setFeedforward(double kS, double kV, double kA, double kG, GravityType gravityType) {
+		this.kS = kS;
+		this.kV = kV;
+		this.kA = kA;
+		this.kG = kG;
+		this.gravityType = gravityType;
+	}
+
+	/**
+	 * Gets the current profiled position.
+	 * 
+	 * @return position
+	 */
+	public double getProfiledPosition() {
+		return position;
+	}
+
+	/**
+	 * Gets the current profiled velocity.
+	 * 
+	 * @return velocity
+	 */
+	public double getProfiledVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * Gets the current profiled acceleration.
+	 * 
+	 * @return acceleration
+	 */
+	public double getProfiledAcceleration() {
+		return acceleration;
+	}
+}
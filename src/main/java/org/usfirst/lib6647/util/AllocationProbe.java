@@ -0,0 +1,219 @@
+package org.usfirst.lib6647.util;
+
+import java.lang.management.ManagementFactory;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Samples how many bytes a single thread allocates per tick, through
+ * {@link com.sun.management.ThreadMXBean}. {@link #begin()} and
+ * {@link #end(boolean)} must both be called from the measured thread, and the
+ * bytes allocated by measuring itself are calibrated away on the first
+ * {@link #begin()}.
+ * 
+ * <p>
+ * Reading a thread's allocated bytes allocates itself on JDK 11, so only one
+ * tick out of every {@link #setSampleInterval(int) sample interval} is
+ * measured, keeping every other tick allocation-free. Every byte count is
+ * therefore per sampled tick: an estimate of the per-tick rate, which can miss
+ * allocations that only happen on some ticks.
+ * 
+ * <p>
+ * Also keeps track of garbage collections (see {@link GCMonitor}) during or
+ * right before every tick, sampled or not, so that overrun ticks can be blamed
+ * on them.
+ */
+public class AllocationProbe {
+	/** Thread bean able to count allocated bytes, or null if not supported. */
+	private static final com.sun.management.ThreadMXBean threads = getThreadBean();
+
+	/** Thread being measured, and bytes allocated by measuring itself. */
+	private long threadId = -1, overhead = 0;
+	/** Allocated bytes at the start of the current tick. */
+	private long start = 0;
+	/**
+	 * Bytes allocated in the last sampled tick, the most in a sampled tick, and
+	 * in every sampled tick.
+	 */
+	private volatile long lastBytes = 0, maxBytes = 0, totalBytes = 0;
+	/** Amount of ticks sampled. */
+	private volatile long samples = 0;
+	/** Measure one tick out of every n, ticks left until the next one. */
+	private int sampleInterval = 50, untilSample = 0;
+	/** Whether the current tick is being measured. */
+	private boolean sampling = false;
+
+	/** Garbage collection count at the end of the last tick. */
+	private long lastCollections = -1;
+	/** Amount of overrun ticks, and of those with a collection since the last. */
+	private volatile long overruns = 0, collectedOverruns = 0;
+
+	/**
+	 * Gets the {@link com.sun.management.ThreadMXBean}, enabling allocation
+	 * counting, or null if not supported by this JVM.
+	 * 
+	 * @return threadBean
+	 */
+	private static com.sun.management.ThreadMXBean getThreadBean() {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+			return null;
+
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		if (!bean.isThreadAllocatedMemorySupported())
+			return null;
+
+		bean.setThreadAllocatedMemoryEnabled(true);
+		return bean;
+	}
+
+	/**
+	 * Whether counting allocated bytes is supported by this JVM.
+	 * 
+	 * @return supported
+	 */
+	public static boolean isSupported() {
+		return threads != null;
+	}
+
+	/**
+	 * Gets the bytes allocated so far by the current thread.
+	 * 
+	 * @return bytes
+	 */
+	private long read() {
+		return threads.getThreadAllocatedBytes(threadId);
+	}
+
+	/**
+	 * Starts measuring a tick, on the measured thread.
+	 */
+	public void begin() {
+		if (threads == null)
+			return;
+
+		if (threadId < 0) {
+			threadId = Thread.currentThread().getId();
+
+			long first = read();
+			overhead = read() - first;
+		}
+
+		if (lastCollections < 0)
+			lastCollections = GCMonitor.getInstance().getCollectionCount();
+
+		sampling = --untilSample <= 0;
+		if (sampling) {
+			untilSample = sampleInterval;
+			start = read();
+		}
+	}
+
+	/**
+	 * Ends measuring a tick, on the measured thread.
+	 * 
+	 * @param overran (whether the tick overran)
+	 */
+	public void end(boolean overran) {
+		if (threads == null || threadId < 0)
+			return;
+
+		if (sampling) {
+			long bytes = Math.max(0, read() - start - overhead);
+
+			lastBytes = bytes;
+			maxBytes = Math.max(maxBytes, bytes);
+			totalBytes += bytes;
+			samples++;
+		}
+
+		// A collection either between ticks or during this one.
+		long collections = GCMonitor.getInstance().getCollectionCount();
+		if (overran) {
+			overruns++;
+			if (collections != lastCollections)
+				collectedOverruns++;
+		}
+
+		lastCollections = collections;
+	}
+
+	/**
+	 * Sets how often ticks are measured, e.g. 50 means only every 50th tick.
+	 * Defaults to 50.
+	 * 
+	 * @param sampleInterval
+	 */
+	public void setSampleInterval(int sampleInterval) {
+		this.sampleInterval = Math.max(1, sampleInterval);
+	}
+
+	/**
+	 * Gets the bytes allocated in the last sampled tick.
+	 * 
+	 * @return lastBytes
+	 */
+	public long getLastSampledBytes() {
+		return lastBytes;
+	}
+
+	/**
+	 * Gets the most bytes allocated in a single sampled tick.
+	 * 
+	 * @return maxBytes
+	 */
+	public long getMaxSampledBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Gets the mean bytes allocated per sampled tick.
+	 * 
+	 * @return meanBytes
+	 */
+	public double getMeanSampledBytes() {
+		return samples > 0 ? (double) totalBytes / samples : 0;
+	}
+
+	/**
+	 * Gets the amount of ticks sampled so far.
+	 * 
+	 * @return samples
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Gets the amount of overrun ticks.
+	 * 
+	 * @return overruns
+	 */
+	public long getOverruns() {
+		return overruns;
+	}
+
+	/**
+	 * Gets the amount of overrun ticks with a garbage collection during them (or
+	 * right before them).
+	 * 
+	 * @return collectedOverruns
+	 */
+	public long getCollectedOverruns() {
+		return collectedOverruns;
+	}
+
+	/**
+	 * Output allocated bytes per sampled tick, and overruns with and without
+	 * garbage collections, to SmartDashboard, with the given key as prefix.
+	 * 
+	 * @param key
+	 */
+	public void outputToSmartDashboard(String key) {
+		SmartDashboard.putNumber(key + "_alloc_sampled_last", lastBytes);
+		SmartDashboard.putNumber(key + "_alloc_sampled_mean", getMeanSampledBytes());
+		SmartDashboard.putNumber(key + "_alloc_sampled_max", maxBytes);
+		SmartDashboard.putNumber(key + "_overruns", overruns);
+		SmartDashboard.putNumber(key + "_overruns_gc", collectedOverruns);
+	}
+}
@@ -0,0 +1,76 @@
+package org.usfirst.lib6647.util;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Source of time for every {@link org.usfirst.lib6647.loops.Looper Looper},
+ * {@link org.usfirst.lib6647.loops.LoopScheduler LoopScheduler} and robot loop.
+ * Defaults to the {@link #FPGA FPGA clock}, but can be replaced by a
+ * {@link VirtualClock} to step a simulation as fast as possible, with the exact
+ * same timestamps on every run.
+ * 
+ * <p>
+ * The {@link Clock} must be set through {@link #setInstance(Clock)} before any
+ * {@link org.usfirst.lib6647.loops.Looper Looper} is started.
+ */
+public abstract class Clock {
+	/** Real {@link Clock}, reading the FPGA timestamp and the JVM's nanoTime. */
+	public static final Clock FPGA = new Clock() {
+		@Override
+		public double getTimestamp() {
+			return Timer.getFPGATimestamp();
+		}
+
+		@Override
+		public long getNanos() {
+			return System.nanoTime();
+		}
+	};
+
+	/** Static instance for the {@link Clock}. */
+	private static volatile Clock instance = FPGA;
+
+	/**
+	 * Sets the static {@link Clock} instance.
+	 * 
+	 * @param clock
+	 */
+	public static void setInstance(Clock clock) {
+		instance = clock;
+	}
+
+	/**
+	 * Gets the static {@link Clock} instance, the {@link #FPGA FPGA clock} unless
+	 * replaced.
+	 * 
+	 * @return static {@link Clock} instance
+	 */
+	public static Clock getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Gets the current timestamp, in seconds.
+	 * 
+	 * @return timestamp
+	 */
+	public abstract double getTimestamp();
+
+	/**
+	 * Gets a monotonic time in nanoseconds, only meant for measuring durations.
+	 * 
+	 * @return nanos
+	 */
+	public abstract long getNanos();
+
+	/**
+	 * Whether this {@link Clock} is virtual, i.e. only moves when told to. When
+	 * it is, nothing starts its own thread or {@link edu.wpi.first.wpilibj.Notifier
+	 * Notifier}, and everything must be stepped manually instead.
+	 * 
+	 * @return virtual
+	 */
+	public boolean isVirtual() {
+		return false;
+	}
+}
@@ -0,0 +1,188 @@
+package org.usfirst.lib6647.util;
+
+import java.util.Arrays;
+
+/**
+ * Tracks how long each part (epoch) of a periodic cycle takes, like WPILib's
+ * Watchdog, but with integer epoch IDs registered up front instead of string
+ * keys, so that marking an epoch never allocates. Every epoch, along with the
+ * whole cycle, keeps a rolling {@link TimingHistogram}, so their distributions
+ * can be seen even when nothing overruns. Like Watchdog's, epochs are printed at
+ * most once a second, so that a run of overruns isn't made worse by console
+ * output.
+ */
+public class EpochTracker {
+	/** Period of each cycle, in seconds. */
+	private final double period;
+	/** Amount of values kept by each rolling {@link TimingHistogram}. */
+	private final int window;
+
+	/** Name of each epoch, and its {@link TimingHistogram}. */
+	private String[] names = new String[0];
+	private TimingHistogram[] histograms = new TimingHistogram[0];
+	/** Duration of each epoch in the last cycle, in nanoseconds. */
+	private long[] lastTimes = new long[0];
+	/** {@link TimingHistogram} for the duration of each whole cycle. */
+	private final TimingHistogram cycleTimes;
+
+	/** Start of the current cycle, and time of the last mark, in nanoseconds. */
+	private long cycleStart = 0, lastMark = 0;
+
+	/** Minimum time (in seconds) between prints, and timestamp of the last one. */
+	private static final double MIN_PRINT_PERIOD = 1.0;
+	private double lastPrint = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Constructor for {@link EpochTracker}.
+	 * 
+	 * @param period (in seconds)
+	 * @param window (amount of cycles kept in each {@link TimingHistogram})
+	 */
+	public EpochTracker(double period, int window) {
+		this.period = period;
+		this.window = window;
+
+		cycleTimes = new TimingHistogram(period, window);
+	}
+
+	/**
+	 * Registers a new epoch, returning its ID. Should only be called before the
+	 * first cycle.
+	 * 
+	 * @param name
+	 * @return id
+	 */
+	public int addEpoch(String name) {
+		int id = names.length;
+
+		names = Arrays.copyOf(names, id + 1);
+		histograms = Arrays.copyOf(histograms, id + 1);
+		lastTimes = Arrays.copyOf(lastTimes, id + 1);
+
+		names[id] = name;
+		histograms[id] = new TimingHistogram(period, window);
+
+		return id;
+	}
+
+	/**
+	 * Starts a new cycle, clearing every duration from the last one.
+	 */
+	public void start() {
+		Arrays.fill(lastTimes, 0);
+
+		cycleStart = Clock.getInstance().getNanos();
+		lastMark = cycleStart;
+	}
+
+	/**
+	 * Ends the given epoch, which took everything since the last mark (or the
+	 * start of the cycle).
+	 * 
+	 * @param id
+	 */
+	public void mark(int id) {
+		long now = Clock.getInstance().getNanos();
+
+		lastTimes[id] = now - lastMark;
+		histograms[id].record(lastTimes[id]);
+
+		lastMark = now;
+	}
+
+	/**
+	 * Ends the current cycle, returning whether it took longer than the period.
+	 * 
+	 * @return overran
+	 */
+	public boolean finish() {
+		long cycleTime = Clock.getInstance().getNanos() - cycleStart;
+		cycleTimes.record(cycleTime);
+
+		return cycleTime > period * 1e9;
+	}
+
+	/**
+	 * Prints every epoch that ran in the last cycle, along with its duration,
+	 * unless the last print was less than a second ago.
+	 */
+	public void printEpochs() {
+		double now = Clock.getInstance().getTimestamp();
+		if (now - lastPrint < MIN_PRINT_PERIOD)
+			return;
+		lastPrint = now;
+
+		StringBuilder epochs = new StringBuilder();
+
+		for (int i = 0; i < names.length; i++)
+			if (lastTimes[i] > 0)
+				epochs.append(String.format("\t%1$s: %2$.6fs\n", names[i], lastTimes[i] * 1e-9));
+
+		System.out.print(epochs);
+	}
+
+	/**
+	 * Gets the ID of the epoch with the given name, or -1 if not found.
+	 * 
+	 * @param name
+	 * @return id
+	 */
+	public int getEpoch(String name) {
+		for (int i = 0; i < names.length; i++)
+			if (names[i].equals(name))
+				return i;
+
+		return -1;
+	}
+
+	/**
+	 * Gets the name of the given epoch.
+	 * 
+	 * @param id
+	 * @return name
+	 */
+	public String getName(int id) {
+		return names[id];
+	}
+
+	/**
+	 * Gets the amount of registered epochs.
+	 * 
+	 * @return count
+	 */
+	public int getEpochCount() {
+		return names.length;
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for the given epoch.
+	 * 
+	 * @param id
+	 * @return histogram
+	 */
+	public TimingHistogram getHistogram(int id) {
+		return histograms[id];
+	}
+
+	/**
+	 * Gets the rolling {@link TimingHistogram} for each whole cycle.
+	 * 
+	 * @return cycleTimes
+	 */
+	public TimingHistogram getCycleTimes() {
+		return cycleTimes;
+	}
+
+	/**
+	 * Output every epoch's {@link TimingHistogram} to SmartDashboard, with the
+	 * given key as prefix.
+	 * 
+	 * @param key
+	 */
+	public void outputToSmartDashboard(String key) {
+		cycleTimes.outputToSmartDashboard(key + "_cycle");
+
+		for (int i = 0; i < names.length; i++)
+			histograms[i].outputToSmartDashboard(key + "_" + names[i]);
+	}
+}
@@ -0,0 +1,150 @@
+package org.usfirst.lib6647.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Watches every garbage collection through {@link GarbageCollectorMXBean}
+ * notifications, keeping track of how many there were and how long they
+ * paused. {@link #getCollectionCount()} never allocates, so it can be sampled
+ * every tick to tell whether a collection happened in between, e.g. to
+ * correlate collections with loop overruns.
+ */
+public class GCMonitor {
+	/** Static instance for the {@link GCMonitor}. */
+	private static GCMonitor instance = null;
+
+	/** Every {@link GarbageCollectorMXBean}, kept in an array to avoid iterators. */
+	private final GarbageCollectorMXBean[] collectors;
+
+	/** Amount of collections notified, and their total and maximum pause. */
+	private volatile long pauseCount = 0;
+	private volatile double totalPause = 0, maxPause = 0;
+	/** Last collection notified, and its pause. */
+	private volatile String lastCollection = "";
+	private volatile double lastPause = 0;
+
+	/**
+	 * Gets static {@link GCMonitor} instance, creating it if needed.
+	 * 
+	 * @return static {@link GCMonitor} instance
+	 */
+	public static synchronized GCMonitor getInstance() {
+		if (instance == null)
+			instance = new GCMonitor();
+
+		return instance;
+	}
+
+	/**
+	 * Registers a notification listener for every
+	 * {@link GarbageCollectorMXBean}.
+	 */
+	private GCMonitor() {
+		collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+
+		for (GarbageCollectorMXBean collector : collectors)
+			if (collector instanceof NotificationEmitter)
+				((NotificationEmitter) collector).addNotificationListener((notification, handback) -> onNotification(notification),
+						null, null);
+	}
+
+	/**
+	 * Records a single garbage collection notification. Runs on a JMX thread.
+	 * 
+	 * @param notification
+	 */
+	private synchronized void onNotification(Notification notification) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+			return;
+
+		GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+				.from((CompositeData) notification.getUserData());
+		double pause = info.getGcInfo().getDuration() * 1e-3;
+
+		pauseCount++;
+		totalPause += pause;
+		maxPause = Math.max(maxPause, pause);
+
+		lastCollection = info.getGcName() + " (" + info.getGcCause() + ")";
+		lastPause = pause;
+	}
+
+	/**
+	 * Gets the total amount of garbage collections so far, straight from every
+	 * {@link GarbageCollectorMXBean}. Never allocates.
+	 * 
+	 * @return collectionCount
+	 */
+	public long getCollectionCount() {
+		long count = 0;
+		for (int i = 0; i < collectors.length; i++)
+			count += Math.max(0, collectors[i].getCollectionCount());
+
+		return count;
+	}
+
+	/**
+	 * Gets the amount of garbage collections notified so far.
+	 * 
+	 * @return pauseCount
+	 */
+	public long getPauseCount() {
+		return pauseCount;
+	}
+
+	/**
+	 * Gets the total time spent in garbage collections, in seconds.
+	 * 
+	 * @return totalPause
+	 */
+	public double getTotalPause() {
+		return totalPause;
+	}
+
+	/**
+	 * Gets the longest garbage collection so far, in seconds.
+	 * 
+	 * @return maxPause
+	 */
+	public double getMaxPause() {
+		return maxPause;
+	}
+
+	/**
+	 * Gets the duration of the last garbage collection, in seconds.
+	 * 
+	 * @return lastPause
+	 */
+	public double getLastPause() {
+		return lastPause;
+	}
+
+	/**
+	 * Gets the name and cause of the last garbage collection.
+	 * 
+	 * @return lastCollection
+	 */
+	public String getLastCollection() {
+		return lastCollection;
+	}
+
+	/**
+	 * Output garbage collection counts and pauses to SmartDashboard.
+	 */
+	public void outputToSmartDashboard() {
+		SmartDashboard.putNumber("gc_count", pauseCount);
+		SmartDashboard.putNumber("gc_total_pause", totalPause);
+		SmartDashboard.putNumber("gc_max_pause", maxPause);
+		SmartDashboard.putNumber("gc_last_pause", lastPause);
+		SmartDashboard.putString("gc_last", lastCollection);
+	}
+}
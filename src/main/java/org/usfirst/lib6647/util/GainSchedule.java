@@ -0,0 +1,167 @@
+package org.usfirst.lib6647.util;
+
+import java.util.Arrays;
+
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperPIDController;
+
+/**
+ * Breakpoint table of PID gains keyed on a scheduling variable (such as
+ * position, or load), for usage with a {@link HyperPIDController}. Gains are
+ * linearly interpolated between breakpoints, and held constant outside of
+ * them.
+ * 
+ * <p>
+ * Every table is stored in primitive arrays, and the last segment used is
+ * cached so that a slowly-changing scheduling variable is looked up in constant
+ * time (falling back to a binary search otherwise). Looking up gains never
+ * allocates.
+ */
+public class GainSchedule {
+	/** Breakpoints (strictly increasing) of the scheduling variable. */
+	private final double[] breakpoints;
+	/** Gains at each of the {@link #breakpoints}. */
+	private final double[] p, i, d;
+
+	/** Index of the last segment used. */
+	private int segment = 0;
+	/** Gains interpolated by the last call to {@link #update(double)}. */
+	private double currentP, currentI, currentD;
+
+	/**
+	 * Constructor for {@link GainSchedule}. Every array must have the same length,
+	 * and {@link #breakpoints} must be strictly increasing.
+	 * 
+	 * @param breakpoints
+	 * @param p
+	 * @param i
+	 * @param d
+	 * @throws IllegalArgumentException if the tables are empty, mismatched or not
+	 *                                  sorted.
+	 */
+	public GainSchedule(double[] breakpoints, double[] p, double[] i, double[] d) {
+		if (breakpoints.length == 0 || p.length != breakpoints.length || i.length != breakpoints.length
+				|| d.length != breakpoints.length)
+			throw new IllegalArgumentException("[!] GAIN SCHEDULE TABLES MUST BE NON-EMPTY AND OF EQUAL LENGTH");
+
+		for (int k = 1; k < breakpoints.length; k++)
+			if (!(breakpoints[k] > breakpoints[k - 1]))
+				throw new IllegalArgumentException("[!] GAIN SCHEDULE BREAKPOINTS MUST BE STRICTLY INCREASING");
+
+		this.breakpoints = Arrays.copyOf(breakpoints, breakpoints.length);
+		this.p = Arrays.copyOf(p, p.length);
+		this.i = Arrays.copyOf(i, i.length);
+		this.d = Arrays.copyOf(d, d.length);
+
+		update(breakpoints[0]);
+	}
+
+	/**
+	 * Interpolates every gain at the given value of the scheduling variable. Read
+	 * them afterwards with {@link #getP()}, {@link #getI()} and {@link #getD()}. A
+	 * NaN value (e.g. from a disconnected sensor) is ignored, holding the last
+	 * gains.
+	 * 
+	 * @param x
+	 */
+	public void update(double x) {
+		if (Double.isNaN(x))
+			return;
+
+		int last = breakpoints.length - 1;
+
+		if (last == 0 || x <= breakpoints[0]) {
+			setCurrent(0);
+			return;
+		} else if (x >= breakpoints[last]) {
+			setCurrent(last);
+			return;
+		}
+
+		// Check the cached segment (and its neighbors) before searching.
+		if (!inSegment(segment, x)) {
+			if (segment + 1 < last && inSegment(segment + 1, x))
+				segment++;
+			else if (segment > 0 && inSegment(segment - 1, x))
+				segment--;
+			else
+				segment = search(x);
+		}
+
+		double t = (x - breakpoints[segment]) / (breakpoints[segment + 1] - breakpoints[segment]);
+
+		currentP = p[segment] + (p[segment + 1] - p[segment]) * t;
+		currentI = i[segment] + (i[segment + 1] - i[segment]) * t;
+		currentD = d[segment] + (d[segment + 1] - d[segment]) * t;
+	}
+
+	/**
+	 * Whether or not x falls within the given segment.
+	 * 
+	 * @param index
+	 * @param x
+	 * @return inSegment
+	 */
+	private boolean inSegment(int index, double x) {
+		return x >= breakpoints[index] && x < breakpoints[index + 1];
+	}
+
+	/**
+	 * Binary search for the segment containing x, which must be strictly within
+	 * the {@link #breakpoints}.
+	 * 
+	 * @param x
+	 * @return segment
+	 */
+	private int search(double x) {
+		int low = 0, high = breakpoints.length - 1;
+
+		while (high - low > 1) {
+			int mid = (low + high) >>> 1;
+
+			if (breakpoints[mid] <= x)
+				low = mid;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Sets every current gain to the values found at the given breakpoint.
+	 * 
+	 * @param index
+	 */
+	private void setCurrent(int index) {
+		currentP = p[index];
+		currentI = i[index];
+		currentD = d[index];
+	}
+
+	/**
+	 * Gets the P gain interpolated by the last {@link #update(double)}.
+	 * 
+	 * @return p
+	 */
+	public double getP() {
+		return currentP;
+	}
+
+	/**
+	 * Gets the I gain interpolated by the last {@link #update(double)}.
+	 * 
+	 * @return i
+	 */
+	public double getI() {
+		return currentI;
+	}
+
+	/**
+	 * Gets the D gain interpolated by the last {@link #update(double)}.
+	 * 
+	 * @return d
+	 */
+	public double getD() {
+		return currentD;
+	}
+}
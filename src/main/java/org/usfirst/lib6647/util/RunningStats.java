@@ -0,0 +1,88 @@
+package org.usfirst.lib6647.util;
+
+/**
+ * Simple, allocation-free accumulator for the count, mean, standard deviation,
+ * minimum and maximum of a stream of values (using Welford's algorithm).
+ */
+public class RunningStats {
+	/** Number of values added since the last {@link #reset()}. */
+	private long count = 0;
+	/** Running mean, and sum of squared differences from the mean. */
+	private double mean = 0, m2 = 0;
+	/** Minimum and maximum values added. */
+	private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Adds a value to the {@link RunningStats}.
+	 * 
+	 * @param value
+	 */
+	public void add(double value) {
+		count++;
+
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+
+		if (value < min)
+			min = value;
+		if (value > max)
+			max = value;
+	}
+
+	/**
+	 * Clears every accumulated value.
+	 */
+	public void reset() {
+		count = 0;
+		mean = 0;
+		m2 = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+
+	/**
+	 * Gets the number of values added since the last {@link #reset()}.
+	 * 
+	 * @return count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the mean of every value added.
+	 * 
+	 * @return mean
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * Gets the (population) standard deviation of every value added.
+	 * 
+	 * @return stdDev
+	 */
+	public double getStdDev() {
+		return count > 0 ? Math.sqrt(m2 / count) : 0;
+	}
+
+	/**
+	 * Gets the minimum value added, or 0 if empty.
+	 * 
+	 * @return min
+	 */
+	public double getMin() {
+		return count > 0 ? min : 0;
+	}
+
+	/**
+	 * Gets the maximum value added, or 0 if empty.
+	 * 
+	 * @return max
+	 */
+	public double getMax() {
+		return count > 0 ? max : 0;
+	}
+}
@@ -0,0 +1,313 @@
+package org.usfirst.lib6647.util;
+
+import java.util.concurrent.locks.StampedLock;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Fixed-bucket histogram of durations, in nanoseconds. Buckets are all the same
+ * width, with a last bucket catching every value above the histogram's range.
+ * Recording a value never allocates.
+ * 
+ * <p>
+ * If given a window, only the last n values are kept, making it a rolling
+ * histogram. Otherwise, every value is kept until {@link #reset()}.
+ * 
+ * <p>
+ * Meant to be written by a single thread, and read by any other. Works as a
+ * seqlock, like {@link org.usfirst.lib6647.subsystem.PeriodicIO PeriodicIO}: a
+ * reader that overlaps with a write simply tries again, so it never sees a torn
+ * value (64-bit fields aren't written atomically on the roboRIO), and never
+ * stalls the writer.
+ */
+public class TimingHistogram {
+	/** Width of each bucket, in nanoseconds. */
+	private final long bucketWidth;
+	/** Count of values in each bucket, the last one being the overflow bucket. */
+	private final long[] buckets;
+	/** Values above this threshold (in nanoseconds) are counted as overruns. */
+	private final long overrunThreshold;
+	/** Last n values recorded, or null if not rolling, and next one to replace. */
+	private final long[] window;
+	private int windowIndex = 0;
+
+	/** Total count of values, and of overruns. */
+	private long count = 0, overruns = 0;
+	/** Sum and maximum of every value. */
+	private long sum = 0, max = 0;
+
+	/** Sequence lock guarding every field above. */
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * Constructor for {@link TimingHistogram}.
+	 * 
+	 * @param bucketWidth      (in nanoseconds)
+	 * @param bucketCount      (not counting the overflow bucket)
+	 * @param overrunThreshold (in nanoseconds)
+	 */
+	public TimingHistogram(long bucketWidth, int bucketCount, long overrunThreshold) {
+		this(bucketWidth, bucketCount, overrunThreshold, 0);
+	}
+
+	/**
+	 * Constructor for a rolling {@link TimingHistogram}, only keeping the last
+	 * given amount of values.
+	 * 
+	 * @param bucketWidth      (in nanoseconds)
+	 * @param bucketCount      (not counting the overflow bucket)
+	 * @param overrunThreshold (in nanoseconds)
+	 * @param window           (0 to keep every value)
+	 */
+	public TimingHistogram(long bucketWidth, int bucketCount, long overrunThreshold, int window) {
+		this.bucketWidth = bucketWidth;
+		this.buckets = new long[bucketCount + 1];
+		this.overrunThreshold = overrunThreshold;
+		this.window = window > 0 ? new long[window] : null;
+	}
+
+	/**
+	 * Constructor for {@link TimingHistogram}, sized for the given period: 100
+	 * buckets spanning twice the period, with values above the period counted as
+	 * overruns.
+	 * 
+	 * @param period (in seconds)
+	 */
+	public TimingHistogram(double period) {
+		this(period, 0);
+	}
+
+	/**
+	 * Constructor for a rolling {@link TimingHistogram}, sized for the given
+	 * period like {@link #TimingHistogram(double)}, and only keeping the last
+	 * given amount of values.
+	 * 
+	 * @param period (in seconds)
+	 * @param window (0 to keep every value)
+	 */
+	public TimingHistogram(double period, int window) {
+		this(Math.max(1, (long) (period * 2e9 / 100)), 100, (long) (period * 1e9), window);
+	}
+
+	/**
+	 * Gets the index of the bucket for the given value.
+	 * 
+	 * @param nanos
+	 * @return bucket
+	 */
+	private int bucketOf(long nanos) {
+		long index = nanos / bucketWidth;
+		return index < buckets.length - 1 ? (int) index : buckets.length - 1;
+	}
+
+	/**
+	 * Records a duration. Negative values are recorded as 0.
+	 * 
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+
+		long stamp = lock.writeLock();
+
+		try {
+			add(nanos);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Adds a duration to the histogram, forgetting the oldest one if rolling.
+	 * 
+	 * @param nanos
+	 */
+	private void add(long nanos) {
+		if (window != null) {
+			// Forget the oldest value once the window is full.
+			if (count == window.length) {
+				long oldest = window[windowIndex];
+
+				buckets[bucketOf(oldest)]--;
+				count--;
+				sum -= oldest;
+				if (oldest > overrunThreshold)
+					overruns--;
+			}
+
+			window[windowIndex] = nanos;
+			windowIndex = windowIndex + 1 < window.length ? windowIndex + 1 : 0;
+		}
+
+		buckets[bucketOf(nanos)]++;
+
+		count++;
+		sum += nanos;
+
+		if (nanos > max)
+			max = nanos;
+		if (nanos > overrunThreshold)
+			overruns++;
+	}
+
+	/**
+	 * Clears every recorded value.
+	 */
+	public void reset() {
+		long stamp = lock.writeLock();
+
+		try {
+			for (int i = 0; i < buckets.length; i++)
+				buckets[i] = 0;
+
+			count = 0;
+			overruns = 0;
+			sum = 0;
+			max = 0;
+			windowIndex = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Gets the given percentile (from 0 to 1) of every recorded value, in seconds.
+	 * Rounded up to its bucket's upper bound, or the maximum if it falls in the
+	 * overflow bucket.
+	 * 
+	 * @param percentile
+	 * @return value
+	 */
+	public double getPercentile(double percentile) {
+		long stamp, value;
+
+		do {
+			stamp = lock.tryOptimisticRead();
+			value = percentileNanos(percentile);
+		} while (!lock.validate(stamp));
+
+		return value * 1e-9;
+	}
+
+	/**
+	 * Gets the given percentile (from 0 to 1) of every recorded value, in
+	 * nanoseconds. Only to be called within a read of the {@link #lock}.
+	 * 
+	 * @param percentile
+	 * @return value
+	 */
+	private long percentileNanos(double percentile) {
+		long total = count;
+		if (total == 0)
+			return 0;
+
+		long target = (long) Math.ceil(percentile * total), seen = 0, highest = maxNanos();
+		for (int i = 0; i < buckets.length - 1; i++) {
+			seen += buckets[i];
+
+			if (seen >= target && seen > 0)
+				return Math.min((i + 1) * bucketWidth, highest);
+		}
+
+		return highest;
+	}
+
+	/**
+	 * Gets the number of recorded values (within the window, if rolling).
+	 * 
+	 * @return count
+	 */
+	public long getCount() {
+		long stamp, value;
+
+		do {
+			stamp = lock.tryOptimisticRead();
+			value = count;
+		} while (!lock.validate(stamp));
+
+		return value;
+	}
+
+	/**
+	 * Gets the number of recorded values above the overrun threshold.
+	 * 
+	 * @return overruns
+	 */
+	public long getOverruns() {
+		long stamp, value;
+
+		do {
+			stamp = lock.tryOptimisticRead();
+			value = overruns;
+		} while (!lock.validate(stamp));
+
+		return value;
+	}
+
+	/**
+	 * Gets the mean of every recorded value, in seconds.
+	 * 
+	 * @return mean
+	 */
+	public double getMean() {
+		long stamp, total, values;
+
+		do {
+			stamp = lock.tryOptimisticRead();
+			total = sum;
+			values = count;
+		} while (!lock.validate(stamp));
+
+		return values > 0 ? total * 1e-9 / values : 0;
+	}
+
+	/**
+	 * Gets the maximum recorded value (within the window, if rolling), in
+	 * seconds.
+	 * 
+	 * @return max
+	 */
+	public double getMax() {
+		long stamp, value;
+
+		do {
+			stamp = lock.tryOptimisticRead();
+			value = maxNanos();
+		} while (!lock.validate(stamp));
+
+		return value * 1e-9;
+	}
+
+	/**
+	 * Gets the maximum recorded value (within the window, if rolling), in
+	 * nanoseconds. Only to be called within a read of the {@link #lock}.
+	 * 
+	 * @return max
+	 */
+	private long maxNanos() {
+		if (window == null)
+			return max;
+
+		// Never past the window, even if a write is overlapping.
+		long windowMax = 0, total = Math.min(count, window.length);
+		for (int i = 0; i < total; i++)
+			if (window[i] > windowMax)
+				windowMax = window[i];
+
+		return windowMax;
+	}
+
+	/**
+	 * Output p50, p99, max and overrun count to SmartDashboard, with the given
+	 * key as prefix.
+	 * 
+	 * @param key
+	 */
+	public void outputToSmartDashboard(String key) {
+		SmartDashboard.putNumber(key + "_p50", getPercentile(0.5));
+		SmartDashboard.putNumber(key + "_p99", getPercentile(0.99));
+		SmartDashboard.putNumber(key + "_max", getMax());
+		SmartDashboard.putNumber(key + "_overruns", getOverruns());
+	}
+}
@@ -0,0 +1,80 @@
+package org.usfirst.lib6647.util;
+
+/**
+ * {@link Clock} that only moves when told to. Time is kept as a whole number of
+ * nanoseconds, so that stepping it by the same amounts always produces the
+ * exact same timestamps.
+ * 
+ * <p>
+ * Durations measured with a {@link VirtualClock} are always 0 (unless the
+ * clock is moved in the meantime), so timing histograms and overrun handling
+ * are fully deterministic as well.
+ */
+public class VirtualClock extends Clock {
+	/** Current time, in nanoseconds. */
+	private volatile long nanos;
+
+	/**
+	 * Constructor for {@link VirtualClock}, starting at the given time.
+	 * 
+	 * @param start (in seconds)
+	 */
+	public VirtualClock(double start) {
+		nanos = toNanos(start);
+	}
+
+	/**
+	 * Constructor for {@link VirtualClock}, starting at 0.
+	 */
+	public VirtualClock() {
+		this(0);
+	}
+
+	/**
+	 * Converts the given time, in seconds, to a whole number of nanoseconds.
+	 * 
+	 * @param seconds
+	 * @return nanos
+	 */
+	public static long toNanos(double seconds) {
+		return Math.round(seconds * 1e9);
+	}
+
+	/**
+	 * Moves the {@link VirtualClock} forward by the given time.
+	 * 
+	 * @param seconds
+	 */
+	public void advance(double seconds) {
+		nanos += toNanos(seconds);
+	}
+
+	/**
+	 * Sets the {@link VirtualClock}'s current time.
+	 * 
+	 * @param nanos
+	 * @throws IllegalArgumentException if it would move the clock backwards.
+	 */
+	public void setNanos(long nanos) {
+		if (nanos < this.nanos)
+			throw new IllegalArgumentException(
+					String.format("[!] CAN NOT MOVE VIRTUAL CLOCK BACKWARDS (%1$d -> %2$d NS)", this.nanos, nanos));
+
+		this.nanos = nanos;
+	}
+
+	@Override
+	public double getTimestamp() {
+		return nanos * 1e-9;
+	}
+
+	@Override
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public boolean isVirtual() {
+		return true;
+	}
+}
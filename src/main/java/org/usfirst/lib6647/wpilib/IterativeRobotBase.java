@@ -6,10 +6,14 @@
 /*----------------------------------------------------------------------------*/
 package org.usfirst.lib6647.wpilib;
 
+import java.util.Arrays;
+
+import org.usfirst.lib6647.loops.RobotMode;
+import org.usfirst.lib6647.util.EpochTracker;
+
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
-import edu.wpi.first.wpilibj.Watchdog;
 import edu.wpi.first.wpilibj.livewindow.LiveWindow;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -50,8 +54,37 @@ public abstract class IterativeRobotBase extends RobotBase {
 		kNone, kDisabled, kAutonomous, kTeleop, kTest
 	}
 
+	/**
+	 * Dashboards updated at the end of each main loop iteration.
+	 */
+	public enum Dashboard {
+		kSmartDashboard, kLiveWindow, kShuffleboard
+	}
+
 	private Mode m_lastMode = Mode.kNone;
-	private final Watchdog m_watchdog;
+
+	// Update each dashboard every n-th iteration (and on which one), per mode.
+	private final int[][] m_updateDecimation = new int[RobotMode.values().length][Dashboard.values().length];
+	private final int[][] m_updatePhase = new int[RobotMode.values().length][Dashboard.values().length];
+	private long m_iteration;
+	private final EpochTracker m_epochs;
+
+	// Epoch IDs for each part of loopFunc(), registered up front.
+	private final int m_disabledInitEpoch;
+	private final int m_disabledPeriodicEpoch;
+	private final int m_autonomousInitEpoch;
+	private final int m_autonomousPeriodicEpoch;
+	private final int m_teleopInitEpoch;
+	private final int m_teleopPeriodicEpoch;
+	private final int m_testInitEpoch;
+	private final int m_testPeriodicEpoch;
+	private final int m_robotPeriodicEpoch;
+	private final int m_smartDashboardEpoch;
+	private final int m_liveWindowEpoch;
+	private final int m_shuffleboardEpoch;
+
+	// Mode forced by a SimulationDriver, or null to follow the DriverStation.
+	private volatile RobotMode m_simulatedMode;
 
 	/**
 	 * Constructor for IterativeRobotBase.
@@ -60,10 +93,24 @@ public abstract class IterativeRobotBase extends RobotBase {
 	 */
 	protected IterativeRobotBase(double period) {
 		m_period = period;
-		m_watchdog = new Watchdog(period, this::printLoopOverrunMessage);
-
-		m_watchdog.disable();
-		m_watchdog.suppressTimeoutMessage(true);
+		m_epochs = new EpochTracker(period, 500);
+
+		m_disabledInitEpoch = m_epochs.addEpoch("disabledInit()");
+		m_disabledPeriodicEpoch = m_epochs.addEpoch("disabledPeriodic()");
+		m_autonomousInitEpoch = m_epochs.addEpoch("autonomousInit()");
+		m_autonomousPeriodicEpoch = m_epochs.addEpoch("autonomousPeriodic()");
+		m_teleopInitEpoch = m_epochs.addEpoch("teleopInit()");
+		m_teleopPeriodicEpoch = m_epochs.addEpoch("teleopPeriodic()");
+		m_testInitEpoch = m_epochs.addEpoch("testInit()");
+		m_testPeriodicEpoch = m_epochs.addEpoch("testPeriodic()");
+		m_robotPeriodicEpoch = m_epochs.addEpoch("robotPeriodic()");
+		m_smartDashboardEpoch = m_epochs.addEpoch("SmartDashboard.updateValues()");
+		m_liveWindowEpoch = m_epochs.addEpoch("LiveWindow.updateValues()");
+		m_shuffleboardEpoch = m_epochs.addEpoch("Shuffleboard.update()");
+
+		for (int[] decimation : m_updateDecimation) {
+			Arrays.fill(decimation, 1);
+		}
 
 		Thread.currentThread().setPriority(9);
 		Thread.currentThread().setName("RobotMainThread");
@@ -75,6 +122,115 @@ public abstract class IterativeRobotBase extends RobotBase {
 	@Override
 	public abstract void startCompetition();
 
+	/**
+	 * Set how often the given dashboard is updated while in the given mode. Each
+	 * dashboard is given a different phase, so that they don't all update on the
+	 * same iteration.
+	 *
+	 * @param dashboard  Dashboard to update.
+	 * @param mode       Mode in which to use this rate.
+	 * @param decimation Update every n-th iteration of the main loop (1 to update
+	 *                   every iteration, the default).
+	 */
+	public void setDashboardUpdateRate(Dashboard dashboard, RobotMode mode, int decimation) {
+		decimation = Math.max(1, decimation);
+		setDashboardUpdateRate(dashboard, mode, decimation, dashboard.ordinal() % decimation);
+	}
+
+	/**
+	 * Set how often the given dashboard is updated while in the given mode, and on
+	 * which iteration.
+	 *
+	 * @param dashboard  Dashboard to update.
+	 * @param mode       Mode in which to use this rate.
+	 * @param decimation Update every n-th iteration of the main loop (1 to update
+	 *                   every iteration, the default).
+	 * @param phase      Iteration (from 0 to decimation - 1) on which to update.
+	 */
+	public void setDashboardUpdateRate(Dashboard dashboard, RobotMode mode, int decimation, int phase) {
+		decimation = Math.max(1, decimation);
+
+		m_updateDecimation[mode.ordinal()][dashboard.ordinal()] = decimation;
+		m_updatePhase[mode.ordinal()][dashboard.ordinal()] = Math.floorMod(phase, decimation);
+	}
+
+	/**
+	 * Set how often the given dashboard is updated, in every mode.
+	 *
+	 * @param dashboard  Dashboard to update.
+	 * @param decimation Update every n-th iteration of the main loop (1 to update
+	 *                   every iteration, the default).
+	 */
+	public void setDashboardUpdateRate(Dashboard dashboard, int decimation) {
+		for (RobotMode mode : RobotMode.values()) {
+			setDashboardUpdateRate(dashboard, mode, decimation);
+		}
+	}
+
+	/**
+	 * Whether the given dashboard should be updated on this iteration.
+	 */
+	private boolean shouldUpdate(Dashboard dashboard, RobotMode mode) {
+		int decimation = m_updateDecimation[mode.ordinal()][dashboard.ordinal()];
+		return m_iteration % decimation == m_updatePhase[mode.ordinal()][dashboard.ordinal()];
+	}
+
+	/**
+	 * Get the mode the main loop is currently running in.
+	 */
+	private RobotMode getLoopMode() {
+		switch (m_lastMode) {
+		case kAutonomous:
+			return RobotMode.AUTONOMOUS;
+		case kTeleop:
+			return RobotMode.TELEOP;
+		case kTest:
+			return RobotMode.TEST;
+		default:
+			return RobotMode.DISABLED;
+		}
+	}
+
+	/**
+	 * Force the robot into the given mode, regardless of the DriverStation. Only
+	 * meant for stepping the robot through a SimulationDriver.
+	 *
+	 * @param mode Mode to force, or null to follow the DriverStation again.
+	 */
+	public void setSimulatedMode(RobotMode mode) {
+		m_simulatedMode = mode;
+	}
+
+	@Override
+	public boolean isDisabled() {
+		RobotMode mode = m_simulatedMode;
+		return mode != null ? mode == RobotMode.DISABLED : super.isDisabled();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		RobotMode mode = m_simulatedMode;
+		return mode != null ? mode != RobotMode.DISABLED : super.isEnabled();
+	}
+
+	@Override
+	public boolean isAutonomous() {
+		RobotMode mode = m_simulatedMode;
+		return mode != null ? mode == RobotMode.AUTONOMOUS : super.isAutonomous();
+	}
+
+	@Override
+	public boolean isOperatorControl() {
+		RobotMode mode = m_simulatedMode;
+		return mode != null ? mode == RobotMode.TELEOP : super.isOperatorControl();
+	}
+
+	@Override
+	public boolean isTest() {
+		RobotMode mode = m_simulatedMode;
+		return mode != null ? mode == RobotMode.TEST : super.isTest();
+	}
+
 	/* ----------- Overridable initialization code ----------------- */
 
 	/**
@@ -204,7 +360,7 @@ public abstract class IterativeRobotBase extends RobotBase {
 	}
 
 	protected void loopFunc() {
-		m_watchdog.reset();
+		m_epochs.start();
 
 		// Call the appropriate function depending upon the current robot mode
 		if (isDisabled()) {
@@ -215,13 +371,13 @@ public abstract class IterativeRobotBase extends RobotBase {
 				LiveWindow.setEnabled(false);
 				Shuffleboard.disableActuatorWidgets();
 				disabledInit();
-				m_watchdog.addEpoch("disabledInit()");
+				m_epochs.mark(m_disabledInitEpoch);
 				m_lastMode = Mode.kDisabled;
 			}
 
 			HAL.observeUserProgramDisabled();
 			disabledPeriodic();
-			m_watchdog.addEpoch("disablePeriodic()");
+			m_epochs.mark(m_disabledPeriodicEpoch);
 		} else if (isAutonomous()) {
 			// Call AutonomousInit() if we are now just entering autonomous mode from either
 			// a different
@@ -230,13 +386,13 @@ public abstract class IterativeRobotBase extends RobotBase {
 				LiveWindow.setEnabled(false);
 				Shuffleboard.disableActuatorWidgets();
 				autonomousInit();
-				m_watchdog.addEpoch("autonomousInit()");
+				m_epochs.mark(m_autonomousInitEpoch);
 				m_lastMode = Mode.kAutonomous;
 			}
 
 			HAL.observeUserProgramAutonomous();
 			autonomousPeriodic();
-			m_watchdog.addEpoch("autonomousPeriodic()");
+			m_epochs.mark(m_autonomousPeriodicEpoch);
 		} else if (isOperatorControl()) {
 			// Call TeleopInit() if we are now just entering teleop mode from either a
 			// different mode or
@@ -245,13 +401,13 @@ public abstract class IterativeRobotBase extends RobotBase {
 				LiveWindow.setEnabled(false);
 				Shuffleboard.disableActuatorWidgets();
 				teleopInit();
-				m_watchdog.addEpoch("teleopInit()");
+				m_epochs.mark(m_teleopInitEpoch);
 				m_lastMode = Mode.kTeleop;
 			}
 
 			HAL.observeUserProgramTeleop();
 			teleopPeriodic();
-			m_watchdog.addEpoch("teleopPeriodic()");
+			m_epochs.mark(m_teleopPeriodicEpoch);
 		} else {
 			// Call TestInit() if we are now just entering test mode from either a different
 			// mode or from
@@ -260,32 +416,53 @@ public abstract class IterativeRobotBase extends RobotBase {
 				LiveWindow.setEnabled(true);
 				Shuffleboard.enableActuatorWidgets();
 				testInit();
-				m_watchdog.addEpoch("testInit()");
+				m_epochs.mark(m_testInitEpoch);
 				m_lastMode = Mode.kTest;
 			}
 
 			HAL.observeUserProgramTest();
 			testPeriodic();
-			m_watchdog.addEpoch("testPeriodic()");
+			m_epochs.mark(m_testPeriodicEpoch);
 		}
 
 		robotPeriodic();
-		m_watchdog.addEpoch("robotPeriodic()");
+		m_epochs.mark(m_robotPeriodicEpoch);
+
+		// Update each dashboard at its own rate, skipping LiveWindow when disabled
+		RobotMode mode = getLoopMode();
+
+		if (shouldUpdate(Dashboard.kSmartDashboard, mode)) {
+			SmartDashboard.updateValues();
+			m_epochs.mark(m_smartDashboardEpoch);
+		}
+		if (LiveWindow.isEnabled() && shouldUpdate(Dashboard.kLiveWindow, mode)) {
+			LiveWindow.updateValues();
+			m_epochs.mark(m_liveWindowEpoch);
+		}
+		if (shouldUpdate(Dashboard.kShuffleboard, mode)) {
+			Shuffleboard.update();
+			m_epochs.mark(m_shuffleboardEpoch);
+		}
 
-		SmartDashboard.updateValues();
-		m_watchdog.addEpoch("SmartDashboard.updateValues()");
-		LiveWindow.updateValues();
-		m_watchdog.addEpoch("LiveWindow.updateValues()");
-		Shuffleboard.update();
-		m_watchdog.addEpoch("Shuffleboard.update()");
-		m_watchdog.disable();
+		m_iteration++;
 
 		// Warn on loop time overruns
-		if (m_watchdog.isExpired()) {
-			m_watchdog.printEpochs();
+		if (m_epochs.finish()) {
+			printLoopOverrunMessage();
+			m_epochs.printEpochs();
 		}
 	}
 
+	/**
+	 * Get the epoch tracker timing each part of the main loop, with a rolling
+	 * histogram per epoch (and for the whole loop).
+	 *
+	 * @return The epoch tracker.
+	 */
+	public EpochTracker getEpochTracker() {
+		return m_epochs;
+	}
+
 	private void printLoopOverrunMessage() {
 		DriverStation.reportWarning("Loop time of " + m_period + "s overrun\n", false);
 	}
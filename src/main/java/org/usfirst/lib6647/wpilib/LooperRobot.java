@@ -4,27 +4,62 @@ import java.util.HashMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import org.usfirst.lib6647.loops.LoopScheduler;
 import org.usfirst.lib6647.loops.Looper;
+import org.usfirst.lib6647.loops.RobotMode;
 import org.usfirst.lib6647.oi.JController;
 import org.usfirst.lib6647.subsystem.RobotMap;
 import org.usfirst.lib6647.subsystem.SuperSubsystem;
+import org.usfirst.lib6647.util.AllocationProbe;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.GCMonitor;
 import org.usfirst.lib6647.util.JSONReader;
 
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 
 /**
  * Implementation of Team 254's {@link Looper Loopers} within a
- * {@link TimedRobot}. It features three {@link Looper} instances which run
- * whenever the robot is either enabled or disabled, or periodically.
+ * {@link TimedRobot}. It features four {@link Looper} instances which run
+ * whenever the robot is either enabled or disabled, or periodically. Every
+ * {@link Looper} is run by a single {@link LoopScheduler} thread.
+ * 
+ * <p>
+ * While disabled, before the first enable, it also runs a {@link WarmUp} over
+ * its hot paths, and reports how long the first enabled cycles took. Every
+ * {@link org.usfirst.lib6647.loops.Loop#onPrepare(double) heavy start hook}
+ * for autonomous and teleop is run in the background as soon as the robot is
+ * disabled, and every mode transition is measured by the
+ * {@link LoopScheduler}, which can also be {@link #setPhaseLock(double)
+ * phase-locked} to the main loop.
+ * 
+ * <p>
+ * Garbage collections are watched through a {@link GCMonitor}, and the bytes
+ * allocated per sampled cycle by both the main thread and every {@link Looper}
+ * are measured through {@link AllocationProbe AllocationProbes}, along with
+ * how many of their overruns had a garbage collection during them.
  */
 public abstract class LooperRobot extends TimedRobot {
 	/** The {@link LooperRobot}'s main {@link Looper Loopers}. */
 	private final Looper enabledLooper = new Looper("enabled"), teleopLooper = new Looper("teleop"),
 			autoLooper = new Looper("auto"), disabledLooper = new Looper("disabled");
+	/** {@link LoopScheduler} running every {@link Looper}, at a 10ms base period. */
+	private final LoopScheduler scheduler = new LoopScheduler(0.01, "LoopScheduler");
 	/** Instance of {@link RobotMap}. */
 	private final RobotMap robotMap = new RobotMap();
 	/** HashMap holding initialized {@link JController joysticks}. */
 	protected final HashMap<String, JController> joysticks = new HashMap<>();
+	/** Every {@link JController} in {@link #joysticks}, polled once per cycle. */
+	private JController[] polledJoysticks = new JController[0];
+	/** JIT {@link WarmUp}, run while disabled before the first enable. */
+	private final WarmUp jitWarmUp = new WarmUp(joysticks.values(), this::warmUp);
+	/** Whether the first enable has been reported yet. */
+	private boolean firstEnableReported = false;
+	/** Garbage collection monitor. */
+	private final GCMonitor gcMonitor = GCMonitor.getInstance();
+	/** Bytes allocated per sampled cycle by the main (TimedRobot) thread. */
+	private final AllocationProbe mainAllocations = new AllocationProbe();
+	/** Only publish allocations every n-th cycle, and the cycles so far. */
+	private int publishDecimation = 50, publishCalls = 0;
 
 	/**
 	 * Constructor for {@link LooperRobot} with default period. Every subsystem
@@ -59,15 +94,45 @@ public abstract class LooperRobot extends TimedRobot {
 
 		// Run JController initialization.
 		initJoysticks();
+		polledJoysticks = joysticks.values().toArray(new JController[0]);
 
 		// Register each given subsystem.
 		for (Supplier<T> s : subsystems)
 			robotMap.registerSubsystem(s.get());
+
+		// Schedule each Looper for its respective modes.
+		scheduler.add(enabledLooper, 0, RobotMode.AUTONOMOUS, RobotMode.TELEOP);
+		scheduler.add(teleopLooper, 0, RobotMode.TELEOP);
+		scheduler.add(autoLooper, 0, RobotMode.AUTONOMOUS);
+		scheduler.add(disabledLooper, 0, RobotMode.DISABLED);
+	}
+
+	/**
+	 * Runs a single cycle of the main loop, sampling the bytes it allocates,
+	 * then marks its commands in {@link RobotMap} for latency measurements. Every
+	 * {@link JController} is {@link JController#poll() polled} first, so that the
+	 * whole cycle reads the same snapshot.
+	 */
+	@Override
+	protected void loopFunc() {
+		Clock clock = Clock.getInstance();
+		long start = clock.getNanos();
+
+		mainAllocations.begin();
+		for (int i = 0; i < polledJoysticks.length; i++)
+			polledJoysticks[i].poll();
+
+		super.loopFunc();
+		mainAllocations.end(clock.getNanos() - start > getPeriod() * 1e9);
+
+		// Every command for this cycle has been computed by now.
+		robotMap.markCommand();
 	}
 
 	@Override
 	public void robotInit() {
-		// Registers each Loop in every declared subsystem.
+		// Registers each Loop in every declared subsystem, failing loudly if they
+		// can't be sorted (e.g. on a dependency cycle).
 		robotMap.registerLoops(enabledLooper, teleopLooper, autoLooper, disabledLooper);
 
 		System.out.println("Default LooperRobot robotInit() method... Override me!");
@@ -78,15 +143,78 @@ public abstract class LooperRobot extends TimedRobot {
 	@Override
 	public void robotPeriodic() {
 		CommandScheduler.getInstance().run();
+
+		// Looper timings are only actually published every few calls.
+		enabledLooper.outputToSmartDashboard();
+		teleopLooper.outputToSmartDashboard();
+		autoLooper.outputToSmartDashboard();
+		disabledLooper.outputToSmartDashboard();
+		robotMap.outputToSmartDashboard();
+
+		if (++publishCalls >= publishDecimation) {
+			gcMonitor.outputToSmartDashboard();
+			mainAllocations.outputToSmartDashboard("robot");
+			scheduler.outputToSmartDashboard();
+			publishCalls = 0;
+		}
+
+		// Warm up hot paths while disabled, then report how the first enable went.
+		if (isDisabled() && !firstEnableReported)
+			jitWarmUp.run();
+		else if (isEnabled() && !firstEnableReported && enabledLooper.getTickTimes().getCount() > 0)
+			reportFirstEnable();
+	}
+
+	/**
+	 * Hook for warming up user code (e.g. commands) with synthetic inputs, called
+	 * on each {@link WarmUp} iteration while disabled. Must never drive an actual
+	 * output, or change any state used once enabled.
+	 * 
+	 * @param iteration
+	 */
+	protected void warmUp(int iteration) {
+	}
+
+	/**
+	 * Sets the total amount of {@link WarmUp} iterations (0 to skip it entirely),
+	 * and how many to run on each robotPeriodic() call. Defaults to 2000 and 100.
+	 * 
+	 * @param iterations
+	 * @param batch
+	 */
+	protected void setWarmUp(int iterations, int batch) {
+		jitWarmUp.configure(iterations, batch);
+	}
+
+	/**
+	 * Prints how long the first enabled cycle's mode init, and the enabled
+	 * {@link Looper}'s first ticks, took, along with the {@link WarmUp}'s first and
+	 * last iteration.
+	 */
+	private void reportFirstEnable() {
+		String init = isAutonomous() ? "autonomousInit()" : isTest() ? "testInit()" : "teleopInit()";
+		int epoch = getEpochTracker().getEpoch(init);
+
+		System.out.println(String.format(
+				"First enable: %1$s took %2$.3fms, enabled Looper's first ticks took up to %3$.3fms "
+						+ "(warm-up: first iteration %4$.3fms, last iteration %5$.3fms)",
+				init, getEpochTracker().getHistogram(epoch).getMax() * 1e3, enabledLooper.getTickTimes().getMax() * 1e3,
+				jitWarmUp.getFirstTime() * 1e3, jitWarmUp.getLastTime() * 1e3));
+
+		firstEnableReported = true;
 	}
 
 	@Override
 	public void disabledInit() {
+		// Report the slowest phases at the end of each match.
+		if (scheduler.getMode() == RobotMode.TELEOP)
+			robotMap.printTopOffenders(10);
+
 		// Start disabled loops, stop enabled, teleop, and auto.
-		enabledLooper.stop();
-		teleopLooper.stop();
-		autoLooper.stop();
-		disabledLooper.start();
+		scheduler.setMode(RobotMode.DISABLED);
+
+		// Get enabled, teleop, and auto loops ready while there's time to spare.
+		scheduler.prepareInBackground(RobotMode.AUTONOMOUS, RobotMode.TELEOP);
 
 		System.out.println("Default LooperRobot disabledInit() method... Override me!");
 	}
@@ -94,10 +222,7 @@ public abstract class LooperRobot extends TimedRobot {
 	@Override
 	public void autonomousInit() {
 		// Start enabled & auto loops, stop teleop & disabled.
-		enabledLooper.start();
-		teleopLooper.stop();
-		autoLooper.start();
-		disabledLooper.stop();
+		scheduler.setMode(RobotMode.AUTONOMOUS);
 
 		System.out.println("Default LooperRobot autonomousInit() method... Override me!");
 	}
@@ -105,10 +230,7 @@ public abstract class LooperRobot extends TimedRobot {
 	@Override
 	public void teleopInit() {
 		// Start enabled & teleop loops, stop auto & disabled.
-		enabledLooper.start();
-		teleopLooper.start();
-		autoLooper.stop();
-		disabledLooper.stop();
+		scheduler.setMode(RobotMode.TELEOP);
 
 		System.out.println("Default LooperRobot teleopInit() method... Override me!");
 	}
@@ -116,14 +238,57 @@ public abstract class LooperRobot extends TimedRobot {
 	@Override
 	public void testInit() {
 		// Stop every loop.
-		enabledLooper.stop();
-		teleopLooper.stop();
-		autoLooper.stop();
-		disabledLooper.stop();
+		scheduler.setMode(RobotMode.TEST);
 
 		System.out.println("Default LooperRobot testInit() method... Override me!");
 	}
 
+	/**
+	 * Adds an additional {@link Looper} to the {@link LooperRobot}'s
+	 * {@link LoopScheduler}, to be run at its own period (which must be a multiple
+	 * of 10ms) while in any of the given {@link RobotMode RobotModes}.
+	 * 
+	 * @param looper
+	 * @param phase  (in 10ms ticks)
+	 * @param modes
+	 */
+	protected void addLooper(Looper looper, int phase, RobotMode... modes) {
+		scheduler.add(looper, phase, modes);
+	}
+
+	/**
+	 * Phase-locks every {@link Looper} to the main loop, so that each base tick
+	 * fires the given offset (in seconds) after the main loop is due. A small
+	 * negative offset (e.g. -0.002) makes commands read the freshest inputs, at
+	 * the cost of their outputs being written on the next tick. Sensor to
+	 * actuator latency can then be read from {@link RobotMap#getSensorToActuator()}.
+	 * 
+	 * @param offset
+	 */
+	protected void setPhaseLock(double offset) {
+		scheduler.setPhaseLock(this::getExpirationTime, getPeriod(), offset);
+	}
+
+	/**
+	 * Gets the {@link LoopScheduler} running every {@link Looper}, e.g. to set its
+	 * {@link org.usfirst.lib6647.loops.ThreadSettings ThreadSettings}.
+	 * 
+	 * @return scheduler
+	 */
+	protected LoopScheduler getLoopScheduler() {
+		return scheduler;
+	}
+
+	/**
+	 * Gets the {@link AllocationProbe} measuring the main (TimedRobot) thread.
+	 * Each {@link Looper}'s own can be read from {@link Looper#getAllocations()}.
+	 * 
+	 * @return mainAllocations
+	 */
+	public AllocationProbe getMainAllocations() {
+		return mainAllocations;
+	}
+
 	/**
 	 * Get {@link SuperSubsystem Subsystem} from {@link LooperRobot#robotMap}.
 	 * 
@@ -134,6 +299,15 @@ public abstract class LooperRobot extends TimedRobot {
 		return robotMap.getSubsystem(name);
 	}
 
+	/**
+	 * Gets the {@link RobotMap} instance, e.g. for its timings.
+	 * 
+	 * @return robotMap
+	 */
+	public RobotMap getRobotMap() {
+		return robotMap;
+	}
+
 	public Stream<SuperSubsystem> getSubsystems() {
 		return robotMap.getSubsystems();
 	}
@@ -0,0 +1,150 @@
+package org.usfirst.lib6647.wpilib;
+
+import java.util.Arrays;
+
+import org.usfirst.lib6647.loops.LoopScheduler;
+import org.usfirst.lib6647.loops.Looper;
+import org.usfirst.lib6647.loops.RobotMode;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.VirtualClock;
+
+/**
+ * Steps a {@link TimedRobot} (and, for a {@link LooperRobot}, its
+ * {@link LoopScheduler}) with a {@link VirtualClock}, as fast as the CPU allows.
+ * Every periodic call happens at the exact same virtual timestamps on every
+ * run, so a full match can be simulated in a few seconds, with repeatable
+ * results.
+ * 
+ * <p>
+ * Creating a {@link SimulationDriver} replaces the static {@link Clock}
+ * instance, so it must be created before any {@link Looper} is started.
+ */
+public class SimulationDriver {
+	/** The {@link TimedRobot} being stepped. */
+	private final TimedRobot robot;
+	/** The {@link LooperRobot}'s {@link LoopScheduler}, if any. */
+	private final LoopScheduler scheduler;
+	/** The {@link VirtualClock} driving everything. */
+	private final VirtualClock clock = new VirtualClock();
+
+	/** Periods of the robot and the {@link LoopScheduler}, in nanoseconds. */
+	private final long robotPeriod, basePeriod;
+	/** Time of the next robot and {@link LoopScheduler} step, in nanoseconds. */
+	private long nextRobot, nextScheduler;
+
+	/** Standalone {@link Looper Loopers}, with their periods and next steps. */
+	private Looper[] loopers = new Looper[0];
+	private long[] looperPeriods = new long[0], nextLoopers = new long[0];
+
+	/** Whether robotInit() has been called yet. */
+	private boolean initialized = false;
+	/** Amount of steps run so far. */
+	private long steps = 0;
+
+	/**
+	 * Constructor for {@link SimulationDriver}. Sets a new {@link VirtualClock}
+	 * as the static {@link Clock} instance.
+	 * 
+	 * @param robot
+	 */
+	public SimulationDriver(TimedRobot robot) {
+		this.robot = robot;
+		this.scheduler = robot instanceof LooperRobot ? ((LooperRobot) robot).getLoopScheduler() : null;
+
+		Clock.setInstance(clock);
+
+		robotPeriod = VirtualClock.toNanos(robot.getPeriod());
+		basePeriod = scheduler != null ? VirtualClock.toNanos(scheduler.getBasePeriod()) : Long.MAX_VALUE;
+
+		nextRobot = robotPeriod;
+		nextScheduler = basePeriod;
+	}
+
+	/**
+	 * Adds a {@link Looper} not run by a {@link LoopScheduler}, to be stepped at
+	 * its own period. It must still be started and stopped as usual.
+	 * 
+	 * @param looper
+	 */
+	public void addLooper(Looper looper) {
+		long period = VirtualClock.toNanos(looper.getPeriod());
+
+		loopers = Arrays.copyOf(loopers, loopers.length + 1);
+		looperPeriods = Arrays.copyOf(looperPeriods, looperPeriods.length + 1);
+		nextLoopers = Arrays.copyOf(nextLoopers, nextLoopers.length + 1);
+
+		loopers[loopers.length - 1] = looper;
+		looperPeriods[looperPeriods.length - 1] = period;
+		nextLoopers[nextLoopers.length - 1] = clock.getNanos() + period;
+	}
+
+	/**
+	 * Runs the robot in the given {@link RobotMode} for the given amount of
+	 * virtual time. Calls robotInit() first, if it hasn't been already.
+	 * 
+	 * <p>
+	 * When the robot and a {@link Looper} are due at the same time, the robot
+	 * always runs first, so that mode changes apply to that same step.
+	 * 
+	 * @param mode
+	 * @param seconds
+	 */
+	public void run(RobotMode mode, double seconds) {
+		if (!initialized) {
+			robot.robotInit();
+			initialized = true;
+		}
+
+		robot.setSimulatedMode(mode);
+		long end = clock.getNanos() + VirtualClock.toNanos(seconds);
+
+		while (true) {
+			long next = Math.min(nextRobot, nextScheduler);
+			for (long nextLooper : nextLoopers)
+				next = Math.min(next, nextLooper);
+
+			if (next > end)
+				break;
+			clock.setNanos(next);
+
+			if (next == nextRobot) {
+				robot.step();
+				nextRobot += robotPeriod;
+			}
+
+			if (next == nextScheduler) {
+				scheduler.step();
+				nextScheduler += basePeriod;
+			}
+
+			for (int i = 0; i < loopers.length; i++)
+				if (next == nextLoopers[i]) {
+					loopers[i].step();
+					nextLoopers[i] += looperPeriods[i];
+				}
+
+			steps++;
+		}
+
+		clock.setNanos(end);
+	}
+
+	/**
+	 * Gets the {@link VirtualClock} driving the simulation.
+	 * 
+	 * @return clock
+	 */
+	public VirtualClock getClock() {
+		return clock;
+	}
+
+	/**
+	 * Gets the amount of steps run so far (each one possibly running the robot,
+	 * the {@link LoopScheduler} and any {@link Looper}).
+	 * 
+	 * @return steps
+	 */
+	public long getSteps() {
+		return steps;
+	}
+}
@@ -31,8 +31,8 @@ public class TimedRobot extends IterativeRobotBase {
 	// just passed to the JNI bindings.
 	private final int m_notifier = NotifierJNI.initializeNotifier();
 
-	// The absolute expiration time
-	private double m_expirationTime;
+	// The absolute expiration time, read by other threads to phase-lock to it
+	private volatile double m_expirationTime;
 
 	/**
 	 * Constructor for TimedRobot.
@@ -96,6 +96,24 @@ public class TimedRobot extends IterativeRobotBase {
 		NotifierJNI.stopNotifier(m_notifier);
 	}
 
+	/**
+	 * Run a single iteration of the main loop, without waiting for the alarm.
+	 * Only meant for stepping the robot through a SimulationDriver.
+	 */
+	public void step() {
+		loopFunc();
+	}
+
+	/**
+	 * Get the absolute time (in seconds) at which the main loop is next due to
+	 * run. Meant for phase-locking other threads to the main loop.
+	 *
+	 * @return The next expiration time.
+	 */
+	public double getExpirationTime() {
+		return m_expirationTime;
+	}
+
 	/**
 	 * Get time period between calls to Periodic() functions.
 	 */
@@ -0,0 +1,216 @@
+package org.usfirst.lib6647.wpilib;
+
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+import org.usfirst.lib6647.loops.ILooper;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopPriority;
+import org.usfirst.lib6647.loops.LoopType;
+import org.usfirst.lib6647.oi.JController;
+import org.usfirst.lib6647.subsystem.RobotMap;
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperPIDController;
+import org.usfirst.lib6647.subsystem.hypercomponents.HyperProfiledPIDController;
+import org.usfirst.lib6647.util.Clock;
+
+import edu.wpi.first.wpilibj2.command.button.Button;
+
+/**
+ * JIT warm-up for a {@link LooperRobot}'s hot paths, meant to run while the
+ * robot is disabled, so that its first enabled cycles don't run interpreted
+ * code. Each iteration drives throwaway {@link HyperPIDController
+ * HyperPIDControllers}, a throwaway {@link RobotMap}'s {@link Loop} dispatch,
+ * every {@link JController}'s {@link Button Buttons} and axes, and a user hook,
+ * all with synthetic inputs. Nothing it touches can reach an actual output.
+ */
+public class WarmUp {
+	/** {@link JController JControllers} to poll. */
+	private final Collection<JController> joysticks;
+	/** User hook, given each iteration's index. */
+	private final IntConsumer hook;
+
+	/** Total amount of iterations, how many to run per batch, and how many ran. */
+	private int iterations = 2000, batch = 100, done = 0;
+	/** Duration of the first and last iteration, in nanoseconds. */
+	private long firstTime = 0, lastTime = 0;
+
+	/** Throwaway controllers, and a throwaway {@link RobotMap}'s dispatch. */
+	private HyperPIDController pid = null;
+	private HyperProfiledPIDController profiledPID = null;
+	private Loop dispatch = null;
+
+	/**
+	 * Constructor for {@link WarmUp}.
+	 * 
+	 * @param joysticks
+	 * @param hook
+	 */
+	public WarmUp(Collection<JController> joysticks, IntConsumer hook) {
+		this.joysticks = joysticks;
+		this.hook = hook;
+	}
+
+	/**
+	 * Sets the total amount of warm-up iterations (0 to skip it entirely), and how
+	 * many to run on each call to {@link #run()}.
+	 * 
+	 * @param iterations
+	 * @param batch
+	 */
+	public void configure(int iterations, int batch) {
+		this.iterations = Math.max(0, iterations);
+		this.batch = Math.max(1, batch);
+	}
+
+	/**
+	 * Runs the next batch of iterations, if not done yet.
+	 */
+	public void run() {
+		if (isDone())
+			return;
+		if (done == 0)
+			prepare();
+
+		Clock clock = Clock.getInstance();
+		int end = Math.min(iterations, done + batch);
+
+		for (; done < end; done++) {
+			long start = clock.getNanos();
+			iterate(done);
+			lastTime = clock.getNanos() - start;
+
+			if (done == 0)
+				firstTime = lastTime;
+		}
+
+		if (isDone())
+			finish();
+	}
+
+	/**
+	 * Creates every throwaway object driven by the warm-up.
+	 */
+	private void prepare() {
+		pid = new HyperPIDController("warmup", "warmup", 0.1, 0.01, 0.001, 0.01);
+		profiledPID = new HyperProfiledPIDController("warmup", "warmup", 0.1, 0.01, 0.001, 0.01, 1, 2);
+		profiledPID.setGoal(1);
+
+		Loop normal = new WarmUpLoop(LoopPriority.NORMAL), bestEffort = new WarmUpLoop(LoopPriority.BEST_EFFORT);
+		Loop[] captured = new Loop[1];
+		ILooper none = loops -> {
+		};
+
+		RobotMap robotMap = new RobotMap();
+		robotMap.register(normal, bestEffort);
+
+		robotMap.registerLoops(loops -> captured[0] = loops[0], none, none, none);
+
+		dispatch = captured[0];
+	}
+
+	/**
+	 * Runs a single warm-up iteration.
+	 * 
+	 * @param iteration
+	 */
+	private void iterate(int iteration) {
+		double timestamp = iteration * 0.01, measurement = Math.sin(iteration * 0.05);
+
+		pid.calculateAt(measurement, timestamp);
+		pid.calculate(measurement);
+		profiledPID.calculate(measurement);
+
+		dispatch.onLoop(timestamp);
+
+		for (JController joystick : joysticks) {
+			joystick.getButtons().forEach(Button::get);
+
+			joystick.getLeftAxis();
+			joystick.getRightAxis();
+		}
+
+		hook.accept(iteration);
+	}
+
+	/**
+	 * Releases every throwaway object, and prints how much faster the last
+	 * iteration was than the first.
+	 */
+	private void finish() {
+		pid.close();
+		profiledPID.close();
+
+		pid = null;
+		profiledPID = null;
+		dispatch = null;
+
+		System.out.println(String.format("Warm-up done: %1$d iterations, first took %2$.3fms, last took %3$.3fms",
+				iterations, firstTime * 1e-6, lastTime * 1e-6));
+	}
+
+	/**
+	 * Whether every warm-up iteration has run.
+	 * 
+	 * @return done
+	 */
+	public boolean isDone() {
+		return done >= iterations;
+	}
+
+	/**
+	 * Gets the duration of the first warm-up iteration, in seconds.
+	 * 
+	 * @return firstTime
+	 */
+	public double getFirstTime() {
+		return firstTime * 1e-9;
+	}
+
+	/**
+	 * Gets the duration of the last warm-up iteration run so far, in seconds.
+	 * 
+	 * @return lastTime
+	 */
+	public double getLastTime() {
+		return lastTime * 1e-9;
+	}
+
+	/**
+	 * No-op {@link Loop} for warming up the {@link RobotMap}'s dispatch.
+	 */
+	private static final class WarmUpLoop implements Loop {
+		private final LoopPriority priority;
+		private double sink = 0;
+
+		private WarmUpLoop(LoopPriority priority) {
+			this.priority = priority;
+		}
+
+		@Override
+		public void onFirstStart(double timestamp) {
+		}
+
+		@Override
+		public void onStart(double timestamp) {
+		}
+
+		@Override
+		public void onLoop(double timestamp) {
+			sink += timestamp;
+		}
+
+		@Override
+		public void onStop(double timestamp) {
+		}
+
+		@Override
+		public LoopType getType() {
+			return LoopType.ENABLED;
+		}
+
+		@Override
+		public LoopPriority getPriority() {
+			return priority;
+		}
+	}
+}
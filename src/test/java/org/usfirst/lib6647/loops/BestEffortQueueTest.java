@@ -0,0 +1,93 @@
+package org.usfirst.lib6647.loops;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BestEffortQueue}'s round-robin scheduling and deferral
+ * counts.
+ */
+public class BestEffortQueueTest {
+	/** {@link ILooper} with slack for a set amount of tasks per tick. */
+	private static final class BudgetLooper implements ILooper {
+		private int budget = 0;
+		private boolean shedding = false;
+
+		@Override
+		public void register(Loop... loops) {
+		}
+
+		@Override
+		public boolean isShedding() {
+			return shedding;
+		}
+
+		@Override
+		public boolean hasSlack() {
+			return budget-- > 0;
+		}
+	}
+
+	private final BestEffortQueue queue = new BestEffortQueue();
+	private final BudgetLooper looper = new BudgetLooper();
+	private final List<Integer> ran = new ArrayList<>();
+
+	/**
+	 * Runs a single tick of the queue, with the given budget.
+	 * 
+	 * @param count
+	 * @param budget
+	 * @return ran
+	 */
+	private int tick(int count, int budget) {
+		looper.budget = budget;
+		return queue.run(count, ran::add, looper);
+	}
+
+	@Test
+	public void resumesWhereTheLastTickStopped() {
+		assertEquals(2, tick(5, 2));
+		assertEquals(2, tick(5, 2));
+		assertEquals(2, tick(5, 2));
+
+		assertEquals(List.of(0, 1, 2, 3, 4, 0), ran);
+	}
+
+	@Test
+	public void runsEachTaskOnceAtMostPerTick() {
+		assertEquals(3, tick(3, 10));
+		assertEquals(List.of(0, 1, 2), ran);
+		assertEquals(0, queue.getDeferrals());
+	}
+
+	@Test
+	public void countsDeferrals() {
+		tick(4, 1);
+		tick(4, 4);
+
+		assertEquals(5, queue.getRuns());
+		assertEquals(3, queue.getDeferrals());
+		assertEquals(1, queue.getDeferredTicks());
+		assertEquals(3.0 / 8, queue.getDeferralRatio(), 1e-12);
+	}
+
+	@Test
+	public void defersEverythingWhileShedding() {
+		looper.shedding = true;
+
+		assertEquals(0, tick(3, 10));
+		assertEquals(3, queue.getDeferrals());
+	}
+
+	@Test
+	public void wrapsWhenTasksAreRemoved() {
+		tick(5, 4);
+		tick(3, 1);
+
+		assertEquals(List.of(0, 1, 2, 3, 0), ran);
+	}
+}
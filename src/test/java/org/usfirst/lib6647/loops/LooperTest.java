@@ -0,0 +1,124 @@
+package org.usfirst.lib6647.loops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.VirtualClock;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Tests for stopping a {@link Looper} from within its own tick.
+ */
+public class LooperTest {
+	private final List<String> events = new ArrayList<>();
+	private final Looper looper = new Looper("test");
+
+	@BeforeClass
+	public static void initializeHAL() {
+		HAL.initialize(500, 0);
+	}
+
+	@Before
+	public void useVirtualClock() {
+		Clock.setInstance(new VirtualClock());
+	}
+
+	@After
+	public void restoreClock() {
+		Clock.setInstance(Clock.FPGA);
+		looper.setParallelism(0);
+	}
+
+	/**
+	 * Creates a {@link Loop} running the given body, recording when it's stopped.
+	 * 
+	 * @param name
+	 * @param parallelSafe
+	 * @param body
+	 * @return loop
+	 */
+	private Loop loop(String name, boolean parallelSafe, Runnable body) {
+		return new Loop() {
+			@Override
+			public void onFirstStart(double timestamp) {
+			}
+
+			@Override
+			public void onStart(double timestamp) {
+			}
+
+			@Override
+			public void onLoop(double timestamp) {
+				body.run();
+			}
+
+			@Override
+			public void onStop(double timestamp) {
+				synchronized (events) {
+					events.add(name + " stopped");
+				}
+			}
+
+			@Override
+			public LoopType getType() {
+				return LoopType.ENABLED;
+			}
+
+			@Override
+			public boolean isParallelSafe() {
+				return parallelSafe;
+			}
+
+			@Override
+			public String getName() {
+				return name;
+			}
+		};
+	}
+
+	@Test
+	public void stopsFromItsOwnTick() {
+		looper.register(loop("a", false, looper::stop));
+		looper.start();
+		looper.step();
+
+		assertFalse(looper.isRunning());
+		assertEquals(List.of("a stopped"), events);
+	}
+
+	@Test
+	public void defersAStopFromAWorker() {
+		// The serial loop holds the tick until the worker has claimed its loop.
+		CountDownLatch claimed = new CountDownLatch(1);
+		looper.register(loop("parallel", true, () -> {
+			claimed.countDown();
+			looper.stop();
+		}), loop("serial", false, () -> {
+			try {
+				claimed.await(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		looper.setParallelism(1);
+		looper.start();
+
+		// Real time, so that the worker is used.
+		Clock.setInstance(Clock.FPGA);
+		looper.step();
+
+		assertFalse(looper.isRunning());
+		assertEquals(List.of("parallel stopped", "serial stopped"), events);
+	}
+}
@@ -0,0 +1,55 @@
+package org.usfirst.lib6647.oi;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link AxisShaper}'s deadband, response curves and rate limit.
+ */
+public class AxisShaperTest {
+	@Test
+	public void rescalesPastTheDeadband() {
+		AxisShaper shaper = new AxisShaper(0.2);
+
+		assertEquals(0, shaper.apply(0.15, 0), 0);
+		assertEquals(0.5, shaper.apply(0.6, 0), 1e-9);
+		assertEquals(-0.5, shaper.apply(-0.6, 0), 1e-9);
+		assertEquals(1, shaper.apply(1, 0), 1e-12);
+		assertEquals(-1, shaper.apply(-1.2, 0), 1e-12);
+	}
+
+	@Test
+	public void followsItsCurve() {
+		AxisShaper cubic = new AxisShaper(0, AxisShaper.Curve.CUBIC, 1, 0),
+				expo = new AxisShaper(0, AxisShaper.Curve.EXPO, 2, 0);
+
+		// Interpolated from the lookup table, so only approximately.
+		assertEquals(0.125, cubic.apply(0.5, 0), 1e-4);
+		assertEquals(-0.125, cubic.apply(-0.5, 0), 1e-4);
+		assertEquals(0.09, expo.apply(0.3, 0), 1e-4);
+		assertEquals(1, expo.apply(1, 0), 1e-12);
+	}
+
+	@Test
+	public void limitsTheRateOfChange() {
+		AxisShaper shaper = new AxisShaper(0, AxisShaper.Curve.LINEAR, 0, 2);
+
+		assertEquals(1, shaper.apply(1, 0), 1e-12);
+		assertEquals(0.96, shaper.apply(0, 0.02), 1e-9);
+		assertEquals(0.92, shaper.apply(-1, 0.04), 1e-9);
+
+		shaper.reset();
+		assertEquals(-1, shaper.apply(-1, 0.06), 1e-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsAFullDeadband() {
+		new AxisShaper(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsANonPositiveExponent() {
+		new AxisShaper(0, AxisShaper.Curve.EXPO, 0, 0);
+	}
+}
@@ -0,0 +1,125 @@
+package org.usfirst.lib6647.oi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.JSONReader;
+import org.usfirst.lib6647.util.VirtualClock;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Tests for {@link JController}'s {@link InputEdge} dispatch, fed with
+ * snapshots instead of the DriverStation.
+ */
+public class JControllerTest {
+	private static final double[] CENTERED = new double[6];
+	private static final int[] RELEASED = { -1 };
+
+	private final VirtualClock clock = new VirtualClock();
+	private final List<String> edges = new ArrayList<>();
+	private JController controller;
+
+	@BeforeClass
+	public static void initialize() {
+		HAL.initialize(500, 0);
+		JSONReader.createInstance("Profiles");
+	}
+
+	@Before
+	public void createController() {
+		Clock.setInstance(clock);
+		controller = new JController(0);
+	}
+
+	@After
+	public void restoreClock() {
+		Clock.setInstance(Clock.FPGA);
+	}
+
+	/**
+	 * Records every {@link InputEdge} of the given input into {@link #edges}.
+	 * 
+	 * @param name
+	 */
+	private void listen(String name) {
+		for (InputEdge edge : InputEdge.values())
+			controller.on(name, edge, timestamp -> edges.add(name + " " + edge + " @" + Math.round(timestamp * 1e3)));
+	}
+
+	/**
+	 * Feeds a snapshot to the {@link #controller}, then advances the clock.
+	 * 
+	 * @param buttons
+	 * @param axes
+	 * @param povs
+	 */
+	private void poll(int buttons, double[] axes, int[] povs) {
+		controller.poll(buttons, axes, povs);
+		clock.advance(0.02);
+	}
+
+	@Test
+	public void dispatchesButtonEdges() {
+		listen("Button1");
+
+		poll(0, CENTERED, RELEASED);
+		poll(1, CENTERED, RELEASED);
+		poll(1, CENTERED, RELEASED);
+		poll(0, CENTERED, RELEASED);
+		poll(0, CENTERED, RELEASED);
+
+		assertEquals(List.of("Button1 PRESSED @20", "Button1 HELD @40", "Button1 RELEASED @60"), edges);
+	}
+
+	@Test
+	public void dispatchesNothingOnTheFirstPoll() {
+		listen("Button2");
+
+		poll(2, CENTERED, RELEASED);
+		poll(2, CENTERED, RELEASED);
+
+		assertEquals(List.of("Button2 HELD @20"), edges);
+	}
+
+	@Test
+	public void dispatchesPOVAndStickEdges() {
+		listen("dPad0_90");
+		listen("Stick1_-1");
+
+		double[] down = CENTERED.clone();
+		down[1] = -0.8;
+
+		poll(0, CENTERED, RELEASED);
+		poll(0, down, new int[] { 90 });
+		poll(0, CENTERED, new int[] { 180 });
+
+		assertEquals(List.of("dPad0_90 PRESSED @20", "Stick1_-1 PRESSED @20", "dPad0_90 RELEASED @40",
+				"Stick1_-1 RELEASED @40"), edges);
+	}
+
+	@Test
+	public void ignoresInputsThatAppearOnConnect() {
+		listen("Stick1");
+
+		poll(0, new double[0], new int[0]);
+		poll(0, CENTERED, RELEASED);
+		poll(0, CENTERED, RELEASED);
+
+		// Centered from the moment it connects, so never pressed.
+		assertEquals(List.of("Stick1 HELD @20", "Stick1 HELD @40"), edges);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownInputs() {
+		controller.on("Nope", InputEdge.PRESSED, timestamp -> {
+		});
+	}
+}
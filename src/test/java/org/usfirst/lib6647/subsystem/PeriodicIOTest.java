@@ -0,0 +1,73 @@
+package org.usfirst.lib6647.subsystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link PeriodicIO}'s snapshots, which must never be torn by a
+ * concurrent {@link PeriodicIO#publish()}.
+ */
+public class PeriodicIOTest {
+	/** Two fields that are always written as a pair. */
+	private static final class Pair implements PeriodicIO.Copyable<Pair> {
+		private long first, second;
+
+		@Override
+		public void copyFrom(Pair source) {
+			first = source.first;
+			second = source.second;
+		}
+	}
+
+	@Test
+	public void readsThePublishedSnapshot() {
+		PeriodicIO<Pair> io = new PeriodicIO<>(new Pair(), new Pair());
+
+		io.getWorking().first = 1;
+		io.getWorking().second = 2;
+		assertEquals(0, io.read(new Pair()).first);
+
+		io.publish();
+		Pair copy = io.read(new Pair());
+		assertEquals(1, copy.first);
+		assertEquals(2, copy.second);
+		assertEquals(1, io.getPublishCount());
+	}
+
+	@Test
+	public void neverReadsATornSnapshot() throws InterruptedException {
+		PeriodicIO<Pair> io = new PeriodicIO<>(new Pair(), new Pair());
+		AtomicBoolean running = new AtomicBoolean(true);
+
+		Thread writer = new Thread(() -> {
+			for (long i = 1; running.get(); i++) {
+				io.getWorking().first = i;
+				io.getWorking().second = -i;
+				io.publish();
+			}
+		});
+		writer.start();
+
+		Pair copy = new Pair();
+		long torn = 0, lastSeen = 0;
+		try {
+			for (int i = 0; i < 200_000; i++) {
+				io.read(copy);
+
+				if (copy.first != -copy.second)
+					torn++;
+				assertTrue("snapshots must never go back in time", copy.first >= lastSeen);
+				lastSeen = copy.first;
+			}
+		} finally {
+			running.set(false);
+			writer.join();
+		}
+
+		assertEquals(0, torn);
+	}
+}
@@ -0,0 +1,257 @@
+package org.usfirst.lib6647.subsystem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.usfirst.lib6647.loops.ILooper;
+import org.usfirst.lib6647.loops.Loop;
+import org.usfirst.lib6647.loops.LoopRegisterException;
+import org.usfirst.lib6647.loops.LoopType;
+import org.usfirst.lib6647.util.Clock;
+import org.usfirst.lib6647.util.VirtualClock;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Tests for the dependency ordering and fan-out of {@link Loop Loops}
+ * registered through {@link RobotMap}.
+ */
+public class RobotMapTest {
+	private final List<String> ran = new ArrayList<>();
+	private final RobotMap robotMap = new RobotMap();
+	/** Wrapper {@link Loop} registered by {@link #robotMap} for enabled loops. */
+	private Loop enabled;
+	private final ILooper capture = loops -> enabled = loops[0], none = loops -> {
+	};
+
+	@BeforeClass
+	public static void initializeHAL() {
+		HAL.initialize(500, 0);
+	}
+
+	@Before
+	public void useVirtualClock() {
+		Clock.setInstance(new VirtualClock());
+	}
+
+	@After
+	public void restoreClock() {
+		Clock.setInstance(Clock.FPGA);
+	}
+
+	/**
+	 * Creates an enabled {@link Loop} that records its name whenever it runs.
+	 * 
+	 * @param name
+	 * @param produces
+	 * @param consumes
+	 * @param runsAfter
+	 * @return loop
+	 */
+	private Loop loop(String name, String[] produces, String[] consumes, String... runsAfter) {
+		return new Loop() {
+			@Override
+			public void onFirstStart(double timestamp) {
+			}
+
+			@Override
+			public void onStart(double timestamp) {
+			}
+
+			@Override
+			public void onLoop(double timestamp) {
+				ran.add(name);
+			}
+
+			@Override
+			public void onStop(double timestamp) {
+			}
+
+			@Override
+			public LoopType getType() {
+				return LoopType.ENABLED;
+			}
+
+			@Override
+			public String getName() {
+				return name;
+			}
+
+			@Override
+			public String[] getProduces() {
+				return produces;
+			}
+
+			@Override
+			public String[] getConsumes() {
+				return consumes;
+			}
+
+			@Override
+			public String[] getRunsAfter() {
+				return runsAfter;
+			}
+		};
+	}
+
+	private static String[] values(String... values) {
+		return values;
+	}
+
+	@Test
+	public void runsDependenciesFirst() {
+		robotMap.register(loop("drive", values(), values("pose")), loop("odometry", values("pose"), values()),
+				loop("telemetry", values(), values(), "drive"), loop("leds", values(), values()));
+		robotMap.registerLoops(capture, none, none, none);
+
+		enabled.onLoop(0);
+		assertEquals(List.of("odometry", "drive", "telemetry", "leds"), ran);
+	}
+
+	@Test
+	public void keepsRegistrationOrderWithoutDependencies() {
+		robotMap.register(loop("a", values(), values()), loop("b", values(), values()), loop("c", values(), values()));
+		robotMap.registerLoops(capture, none, none, none);
+
+		enabled.onLoop(0);
+		assertEquals(List.of("a", "b", "c"), ran);
+	}
+
+	@Test
+	public void rejectsDependencyCycles() {
+		// 'e' only runs after the cycle, it isn't part of it.
+		robotMap.register(loop("e", values(), values(), "a"), loop("a", values(), values(), "c"),
+				loop("b", values(), values(), "a"), loop("c", values(), values(), "b"), loop("d", values(), values()));
+
+		try {
+			robotMap.registerLoops(capture, none, none, none);
+			fail("a dependency cycle must be rejected");
+		} catch (LoopRegisterException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("LOOPS: 'A', 'B', 'C'."));
+			assertTrue(e.getMessage(), !e.getMessage().contains("'D'") && !e.getMessage().contains("'E'"));
+		}
+
+		assertNull(enabled);
+	}
+
+	@Test
+	public void breaksDependencyCyclesWhenAsked() {
+		robotMap.register(loop("e", values(), values(), "a"), loop("a", values(), values(), "c"),
+				loop("b", values(), values(), "a"), loop("c", values(), values(), "b"), loop("d", values(), values()));
+		robotMap.registerLoopsBreakingCycles(capture, none, none, none);
+
+		// Only the cycle's own dependency is dropped, 'e' still runs after 'a'.
+		enabled.onLoop(0);
+		assertEquals(List.of("d", "a", "e", "b", "c"), ran);
+	}
+
+	@Test
+	public void rejectsUnnamedLoops() {
+		robotMap.register(loop("", values(), values()));
+
+		try {
+			robotMap.registerLoops(capture, none, none, none);
+			fail("an unnamed loop must be rejected");
+		} catch (LoopRegisterException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("UNNAMED"));
+		}
+	}
+
+	@Test
+	public void rejectsDependenciesOnSharedNames() {
+		robotMap.register(loop("a", values(), values()), loop("a", values(), values()),
+				loop("b", values(), values(), "a"));
+
+		try {
+			robotMap.registerLoops(capture, none, none, none);
+			fail("a dependency on a shared name must be rejected");
+		} catch (LoopRegisterException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("SHARED BY 2 LOOPS"));
+		}
+	}
+
+	@Test
+	public void tellsSharedNamesApartInTimings() {
+		robotMap.register(loop("a", values(), values()), loop("a", values(), values()));
+		robotMap.registerLoops(capture, none, none, none);
+
+		assertNotNull(robotMap.getLoopTimes(LoopType.ENABLED, "a"));
+		assertNotNull(robotMap.getLoopTimes(LoopType.ENABLED, "a_2"));
+		assertNotSame(robotMap.getLoopTimes(LoopType.ENABLED, "a"), robotMap.getLoopTimes(LoopType.ENABLED, "a_2"));
+	}
+
+	/**
+	 * Creates an enabled {@link Loop} with no dependencies, running the given body.
+	 * 
+	 * @param parallelSafe
+	 * @param body
+	 * @return loop
+	 */
+	private static Loop loop(boolean parallelSafe, Runnable body) {
+		return new Loop() {
+			@Override
+			public void onFirstStart(double timestamp) {
+			}
+
+			@Override
+			public void onStart(double timestamp) {
+			}
+
+			@Override
+			public void onLoop(double timestamp) {
+				body.run();
+			}
+
+			@Override
+			public void onStop(double timestamp) {
+			}
+
+			@Override
+			public LoopType getType() {
+				return LoopType.ENABLED;
+			}
+
+			@Override
+			public boolean isParallelSafe() {
+				return parallelSafe;
+			}
+		};
+	}
+
+	@Test
+	public void fansOutIndependentParallelSafeLoops() {
+		// The parallel-safe loop only sees the latch open if it runs alongside the
+		// serial one, which opens it.
+		CountDownLatch serialRan = new CountDownLatch(1);
+		List<Boolean> overlapped = new ArrayList<>();
+
+		robotMap.register(loop(true, () -> {
+			try {
+				overlapped.add(serialRan.await(1, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}), loop(false, serialRan::countDown));
+		robotMap.registerLoops(capture, none, none, none);
+
+		robotMap.setParallelism(1);
+		Clock.setInstance(Clock.FPGA);
+		enabled.onLoop(0);
+		robotMap.setParallelism(0);
+
+		assertEquals(List.of(true), overlapped);
+	}
+}
@@ -0,0 +1,95 @@
+package org.usfirst.lib6647.subsystem.hypercomponents;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.usfirst.lib6647.util.GainSchedule;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Tests for {@link HyperPIDController#calculateAt(double, double)}'s dt
+ * handling, using a pure I controller so that each output is the accumulated
+ * error times dt.
+ */
+public class HyperPIDControllerTest {
+	private HyperPIDController controller;
+
+	@BeforeClass
+	public static void initializeHAL() {
+		HAL.initialize(500, 0);
+	}
+
+	@Before
+	public void createController() {
+		controller = new HyperPIDController("test", "test", 0, 1, 0, 0.02);
+		controller.setOutputRange(-10, 10);
+		controller.setIntegratorRange(-10, 10);
+		controller.setSetpoint(1);
+	}
+
+	@Test
+	public void usesTheNominalPeriodFirst() {
+		assertEquals(0.02, controller.calculateAt(0, 100), 1e-12);
+		assertEquals(0, controller.getDtStats().getCount());
+	}
+
+	@Test
+	public void usesTheMeasuredDt() {
+		controller.calculateAt(0, 0);
+
+		assertEquals(0.05, controller.calculateAt(0, 0.03), 1e-12);
+		assertEquals(0, controller.getClampedDts());
+		assertEquals(0.03, controller.getDtStats().getMax(), 1e-12);
+	}
+
+	@Test
+	public void clampsDtToItsLimits() {
+		controller.calculateAt(0, 0);
+
+		// Clamped to four times the period...
+		assertEquals(0.1, controller.calculateAt(0, 10), 1e-12);
+		// ...and to a quarter of it.
+		assertEquals(0.105, controller.calculateAt(0, 10.001), 1e-12);
+
+		assertEquals(2, controller.getClampedDts());
+		assertEquals(10, controller.getDtStats().getMax(), 1e-12);
+	}
+
+	@Test
+	public void clampsDtToCustomLimits() {
+		controller.setDtLimits(0.01, 0.03);
+		controller.calculateAt(0, 0);
+
+		assertEquals(0.05, controller.calculateAt(0, 1), 1e-12);
+		assertEquals(1, controller.getClampedDts());
+	}
+
+	@Test
+	public void usesTheNominalPeriodAfterReset() {
+		controller.calculateAt(0, 0);
+		controller.reset();
+
+		assertEquals(0.02, controller.calculateAt(0, 5), 1e-12);
+		assertEquals(0, controller.getClampedDts());
+	}
+
+	@Test
+	public void integratesWithScheduledGains() {
+		// I gain of 0 at the start, ramping up to 1.
+		controller.setGainSchedule(
+				new GainSchedule(new double[] { 0, 1 }, new double[2], new double[] { 0, 1 }, new double[2]), false);
+
+		controller.setScheduleInput(0);
+		assertEquals(0, controller.calculateAt(0, 0), 0);
+
+		// Error accumulated under earlier gains isn't rescaled by the new ones.
+		controller.setScheduleInput(1);
+		assertEquals(0.02, controller.calculateAt(0, 0.02), 1e-12);
+
+		controller.setScheduleInput(Double.NaN);
+		assertEquals(0.04, controller.calculateAt(0, 0.04), 1e-12);
+	}
+}
@@ -0,0 +1,150 @@
+package org.usfirst.lib6647.subsystem.hypercomponents;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import edu.wpi.first.hal.HAL;
+
+/**
+ * Tests for {@link HyperProfiledPIDController}'s trapezoid profile, with a
+ * maximum velocity of 1 and acceleration of 2: half a second accelerating, half
+ * a second at full speed and half a second decelerating, for a 1 unit move.
+ */
+public class HyperProfiledPIDControllerTest {
+	private static final double PERIOD = 0.02;
+
+	@BeforeClass
+	public static void initializeHAL() {
+		HAL.initialize(500, 0);
+	}
+
+	/**
+	 * Creates a pure feedforward (no PID gains) controller at rest at 0, with the
+	 * given goal.
+	 * 
+	 * @param goal
+	 * @return controller
+	 */
+	private static HyperProfiledPIDController create(double goal) {
+		HyperProfiledPIDController controller = new HyperProfiledPIDController("test", "test", 0, 0, 0, PERIOD, 1, 2);
+		controller.setOutputRange(-10, 10);
+		controller.reset(0);
+		controller.setGoal(goal);
+
+		return controller;
+	}
+
+	/**
+	 * Advances the given controller by the given amount of periods.
+	 * 
+	 * @param controller
+	 * @param steps
+	 */
+	private static void step(HyperProfiledPIDController controller, int steps) {
+		for (int i = 0; i < steps; i++)
+			controller.calculate(controller.getProfiledPosition());
+	}
+
+	@Test
+	public void followsATrapezoid() {
+		HyperProfiledPIDController controller = create(1);
+
+		step(controller, 25);
+		assertEquals(0.25, controller.getProfiledPosition(), 1e-6);
+		assertEquals(1, controller.getProfiledVelocity(), 1e-6);
+
+		step(controller, 25);
+		assertEquals(0.75, controller.getProfiledPosition(), 1e-6);
+		assertEquals(1, controller.getProfiledVelocity(), 1e-6);
+
+		step(controller, 25);
+		assertEquals(1, controller.getProfiledPosition(), 1e-6);
+		assertEquals(0, controller.getProfiledVelocity(), 1e-6);
+
+		step(controller, 5);
+		assertEquals(1, controller.getProfiledPosition(), 0);
+		assertEquals(0, controller.getProfiledVelocity(), 0);
+	}
+
+	@Test
+	public void followsATriangleForShortMoves() {
+		HyperProfiledPIDController controller = create(0.25);
+
+		// Never reaches full speed, peaking at sqrt(2 * 2 * 0.125) halfway through.
+		double peak = 0;
+		for (int i = 0; i < 50; i++) {
+			step(controller, 1);
+			peak = Math.max(peak, controller.getProfiledVelocity());
+		}
+
+		assertEquals(Math.sqrt(2 * 2 * 0.125), peak, 2 * PERIOD);
+		assertEquals(0.25, controller.getProfiledPosition(), 1e-9);
+	}
+
+	@Test
+	public void movesInReverse() {
+		HyperProfiledPIDController controller = create(-1);
+
+		step(controller, 25);
+		assertEquals(-0.25, controller.getProfiledPosition(), 1e-6);
+		assertEquals(-1, controller.getProfiledVelocity(), 1e-6);
+	}
+
+	@Test
+	public void respectsItsConstraints() {
+		HyperProfiledPIDController controller = create(3);
+
+		double lastVelocity = 0;
+		for (int i = 0; i < 250; i++) {
+			step(controller, 1);
+
+			double velocity = controller.getProfiledVelocity();
+			assertTrue(Math.abs(velocity) <= 1 + 1e-9);
+			assertTrue(Math.abs(velocity - lastVelocity) <= 2 * PERIOD + 1e-9);
+			lastVelocity = velocity;
+		}
+
+		assertEquals(3, controller.getProfiledPosition(), 1e-9);
+	}
+
+	@Test
+	public void startsFromTheFirstMeasurement() {
+		HyperProfiledPIDController controller = new HyperProfiledPIDController("test", "test", 0, 0, 0, PERIOD, 1, 2);
+		controller.setGoal(3);
+
+		controller.calculate(2);
+		assertEquals(2 + 2 * PERIOD * PERIOD / 2, controller.getProfiledPosition(), 1e-9);
+
+		// A plain reset() starts over from the next measurement.
+		controller.reset();
+		controller.calculate(2.5);
+		assertEquals(2.5 + 2 * PERIOD * PERIOD / 2, controller.getProfiledPosition(), 1e-9);
+	}
+
+	@Test
+	public void takesTheShortestWayAroundWhenContinuous() {
+		HyperProfiledPIDController controller = create(3.5);
+		controller.enableContinuousInput(0, 4);
+		controller.reset(0.5);
+
+		// 3.5 is a unit behind 0.5, rather than three units ahead.
+		step(controller, 1);
+		assertTrue(controller.getProfiledVelocity() < 0);
+
+		step(controller, 100);
+		assertEquals(-0.5, controller.getProfiledPosition(), 1e-9);
+		assertTrue(controller.atGoal());
+	}
+
+	@Test
+	public void addsFeedforward() {
+		HyperProfiledPIDController controller = create(1);
+		controller.setFeedforward(0.1, 2, 0.5, 0.3, HyperProfiledPIDController.GravityType.CONSTANT);
+
+		// First step: accelerating at 2, reaching a velocity of 0.04.
+		assertEquals(0.1 + 2 * 0.04 + 0.5 * 2 + 0.3, controller.calculate(0), 1e-9);
+	}
+}
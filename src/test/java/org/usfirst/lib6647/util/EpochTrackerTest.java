@@ -0,0 +1,87 @@
+package org.usfirst.lib6647.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EpochTracker}'s durations and print rate limit.
+ */
+public class EpochTrackerTest {
+	private final VirtualClock clock = new VirtualClock();
+	private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+	private final PrintStream console = System.out;
+	private final EpochTracker epochs = new EpochTracker(0.02, 10);
+	private int epoch;
+
+	@Before
+	public void captureOutput() {
+		Clock.setInstance(clock);
+		System.setOut(new PrintStream(output, true));
+
+		epoch = epochs.addEpoch("robotPeriodic()");
+	}
+
+	@After
+	public void restoreOutput() {
+		System.setOut(console);
+		Clock.setInstance(Clock.FPGA);
+	}
+
+	/**
+	 * Runs a single cycle with a single epoch of the given duration.
+	 * 
+	 * @param seconds
+	 * @return overran
+	 */
+	private boolean cycle(double seconds) {
+		epochs.start();
+		clock.advance(seconds);
+		epochs.mark(epoch);
+
+		return epochs.finish();
+	}
+
+	/**
+	 * Gets the amount of lines printed so far.
+	 * 
+	 * @return lines
+	 */
+	private long printedLines() {
+		return output.toString().lines().count();
+	}
+
+	@Test
+	public void recordsEachEpoch() {
+		assertEquals(false, cycle(0.01));
+		assertEquals(true, cycle(0.03));
+
+		assertEquals(2, epochs.getHistogram(epoch).getCount());
+		assertEquals(0.03, epochs.getHistogram(epoch).getMax(), 1e-9);
+		assertEquals(1, epochs.getCycleTimes().getOverruns());
+	}
+
+	@Test
+	public void printsAtMostOnceASecond() {
+		cycle(0.03);
+		epochs.printEpochs();
+		assertEquals(1, printedLines());
+
+		// A run of overruns only prints once...
+		for (int i = 0; i < 10; i++) {
+			cycle(0.03);
+			epochs.printEpochs();
+		}
+		assertEquals(1, printedLines());
+
+		// ...until a second has gone by.
+		clock.advance(1);
+		epochs.printEpochs();
+		assertEquals(2, printedLines());
+	}
+}
@@ -0,0 +1,64 @@
+package org.usfirst.lib6647.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link GainSchedule}'s interpolation and lookup.
+ */
+public class GainScheduleTest {
+	private final GainSchedule schedule = new GainSchedule(new double[] { 0, 1, 3 }, new double[] { 1, 2, 6 },
+			new double[] { 0, 0.5, 1.5 }, new double[] { 0, 0, 0.2 });
+
+	@Test
+	public void interpolatesBetweenBreakpoints() {
+		schedule.update(0.5);
+		assertEquals(1.5, schedule.getP(), 1e-12);
+		assertEquals(0.25, schedule.getI(), 1e-12);
+		assertEquals(0, schedule.getD(), 1e-12);
+
+		schedule.update(2);
+		assertEquals(4, schedule.getP(), 1e-12);
+		assertEquals(1, schedule.getI(), 1e-12);
+		assertEquals(0.1, schedule.getD(), 1e-12);
+	}
+
+	@Test
+	public void holdsGainsOutsideBreakpoints() {
+		schedule.update(-5);
+		assertEquals(1, schedule.getP(), 1e-12);
+
+		schedule.update(10);
+		assertEquals(6, schedule.getP(), 1e-12);
+		assertEquals(0.2, schedule.getD(), 1e-12);
+	}
+
+	@Test
+	public void jumpsAcrossSegments() {
+		schedule.update(2.5);
+		schedule.update(0.25);
+		assertEquals(1.25, schedule.getP(), 1e-12);
+
+		schedule.update(1);
+		assertEquals(2, schedule.getP(), 1e-12);
+	}
+
+	@Test
+	public void ignoresNaN() {
+		schedule.update(2);
+		schedule.update(Double.NaN);
+		assertEquals(4, schedule.getP(), 1e-12);
+		assertEquals(1, schedule.getI(), 1e-12);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnsortedBreakpoints() {
+		new GainSchedule(new double[] { 0, 0 }, new double[2], new double[2], new double[2]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsMismatchedTables() {
+		new GainSchedule(new double[] { 0, 1 }, new double[2], new double[1], new double[2]);
+	}
+}
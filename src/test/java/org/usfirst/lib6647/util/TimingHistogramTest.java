@@ -0,0 +1,86 @@
+package org.usfirst.lib6647.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link TimingHistogram}'s percentiles, overruns, rolling window and
+ * concurrent reads.
+ */
+public class TimingHistogramTest {
+	@Test
+	public void roundsPercentilesUpToTheirBucket() {
+		// Ten 1 microsecond buckets, overruns above 5 microseconds.
+		TimingHistogram histogram = new TimingHistogram(1000, 10, 5000);
+		for (long nanos = 500; nanos < 10000; nanos += 1000)
+			histogram.record(nanos);
+
+		assertEquals(10, histogram.getCount());
+		assertEquals(5e-6, histogram.getPercentile(0.5), 1e-12);
+		assertEquals(9.5e-6, histogram.getPercentile(1), 1e-12);
+		assertEquals(1e-6, histogram.getPercentile(0), 1e-12);
+		assertEquals(5, histogram.getOverruns());
+		assertEquals(5e-6, histogram.getMean(), 1e-12);
+	}
+
+	@Test
+	public void reportsTheMaximumForOverflowingValues() {
+		TimingHistogram histogram = new TimingHistogram(1000, 10, 5000);
+		histogram.record(100);
+		histogram.record(50000);
+
+		assertEquals(50e-6, histogram.getPercentile(0.99), 1e-12);
+		assertEquals(50e-6, histogram.getMax(), 1e-12);
+	}
+
+	@Test
+	public void forgetsValuesOutsideItsWindow() {
+		TimingHistogram histogram = new TimingHistogram(1000, 10, 5000, 3);
+		histogram.record(9000);
+		histogram.record(8000);
+		for (int i = 0; i < 3; i++)
+			histogram.record(1500);
+
+		assertEquals(3, histogram.getCount());
+		assertEquals(0, histogram.getOverruns());
+		assertEquals(1.5e-6, histogram.getMax(), 1e-12);
+		assertEquals(1.5e-6, histogram.getMean(), 1e-12);
+		assertEquals(1.5e-6, histogram.getPercentile(0.99), 1e-12);
+	}
+
+	@Test
+	public void resetsEverything() {
+		TimingHistogram histogram = new TimingHistogram(0.02, 10);
+		histogram.record(30_000_000);
+		histogram.reset();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getOverruns());
+		assertEquals(0, histogram.getPercentile(0.5), 0);
+	}
+
+	@Test
+	public void neverReadsATornWindow() throws InterruptedException {
+		// Alternating values in a window of two always average 2 microseconds.
+		TimingHistogram histogram = new TimingHistogram(1000, 10, 5000, 2);
+		histogram.record(1000);
+		histogram.record(3000);
+
+		Thread writer = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				histogram.record(1000);
+				histogram.record(3000);
+			}
+		});
+		writer.start();
+
+		try {
+			for (int i = 0; i < 100000; i++)
+				assertEquals(2e-6, histogram.getMean(), 1e-12);
+		} finally {
+			writer.interrupt();
+			writer.join();
+		}
+	}
+}